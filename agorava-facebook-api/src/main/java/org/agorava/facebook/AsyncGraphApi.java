@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variants of the {@link GraphApi} operations. Each call returns immediately with a future completed once
+ * Facebook answered, or completed exceptionally with the {@link org.agorava.api.exception.AgoravaException} the
+ * blocking operation would have thrown.
+ * <p>
+ * The operations run on the {@code @Facebook Executor} produced by the application, which must propagate the CDI
+ * context of the caller; without one the returned futures are completed exceptionally with an
+ * {@link org.agorava.api.exception.AgoravaException}, nothing is thrown to the caller. Backing it with virtual threads
+ * lets the number of concurrent calls grow with the available connections rather than with the number of platform
+ * threads.
+ *
+ * @see GraphApi
+ */
+public interface AsyncGraphApi {
+
+    /**
+     * @see GraphApi#fetchObject(String, Class)
+     */
+    <T> CompletableFuture<T> fetchObject(String objectId, Class<T> type);
+
+    /**
+     * @see GraphApi#fetchObject(String, Class, Map)
+     */
+    <T> CompletableFuture<T> fetchObject(String objectId, Class<T> type, Map<String, String> queryParameters);
+
+    /**
+     * @see GraphApi#fetchConnections(String, String, Class, String...)
+     */
+    <T> CompletableFuture<List<T>> fetchConnections(String objectId, String connectionName, Class<T> type,
+                                                    String... fields);
+
+    /**
+     * @see GraphApi#fetchConnections(String, String, Class, Map)
+     */
+    <T> CompletableFuture<List<T>> fetchConnections(String objectId, String connectionName, Class<T> type,
+                                                    Map<String, String> queryParameters);
+
+    /**
+     * @see GraphApi#publish(String, String, Map)
+     */
+    CompletableFuture<String> publish(String objectId, String connectionName, Map<String, Object> data);
+
+    /**
+     * @see GraphApi#post(String, String, Map)
+     */
+    CompletableFuture<Void> post(String objectId, String connectionName, Map<String, String> data);
+
+    /**
+     * @see GraphApi#delete(String)
+     */
+    CompletableFuture<Void> delete(String objectId);
+
+    /**
+     * @see GraphApi#delete(String, String)
+     */
+    CompletableFuture<Void> delete(String objectId, String connectionName);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook;
+
+import org.agorava.facebook.model.LinkPost;
+import org.agorava.facebook.model.NotePost;
+import org.agorava.facebook.model.Post;
+import org.agorava.facebook.model.StatusPost;
+import org.reactivestreams.Publisher;
+
+import java.util.Map;
+
+/**
+ * Reactive Streams views of the feeds of {@link FeedService} and of the connections of {@link GraphApi}.
+ * Pages are fetched as subscribers request elements, never more than one ahead of the demand unless prefetching is
+ * asked for, so that a slow subscriber holds back the fetching instead of letting pages pile up in memory.
+ * <p>
+ * Each subscription walks the pages from the first one. Elements are emitted from the {@code @Facebook Executor}
+ * produced by the application, which must propagate the CDI context of the caller; without one the methods fail with
+ * an {@link org.agorava.api.exception.AgoravaException}. Failures are signaled with the
+ * {@link org.agorava.api.exception.AgoravaException} the blocking operation would have thrown. On Java 9 and later,
+ * {@code org.reactivestreams.FlowAdapters} turns the publishers into {@code java.util.concurrent.Flow.Publisher}s.
+ */
+public interface FacebookPublishers {
+
+    /**
+     * @param ownerId  the owner of the feed (could be a user, page, event, etc)
+     * @param pageSize the number of posts fetched per page
+     * @see FeedService#getFeed(String, int, int)
+     */
+    Publisher<Post> getFeed(String ownerId, int pageSize);
+
+    /**
+     * @param pageSize the number of posts fetched per page
+     * @see FeedService#getHomeFeed(int, int)
+     */
+    Publisher<Post> getHomeFeed(int pageSize);
+
+    /**
+     * @param ownerId  the owner of the feed (could be a user, page, event, etc)
+     * @param pageSize the number of posts fetched per page
+     * @see FeedService#getPosts(String, int, int)
+     */
+    Publisher<Post> getPosts(String ownerId, int pageSize);
+
+    /**
+     * @param userId   the user whose statuses are published
+     * @param pageSize the number of posts fetched per page
+     * @see FeedService#getStatuses(String, int, int)
+     */
+    Publisher<StatusPost> getStatuses(String userId, int pageSize);
+
+    /**
+     * @param ownerId  the owner of the feed (could be a user, page, event, etc)
+     * @param pageSize the number of posts fetched per page
+     * @see FeedService#getLinks(String, int, int)
+     */
+    Publisher<LinkPost> getLinks(String ownerId, int pageSize);
+
+    /**
+     * @param ownerId  the owner of the feed (could be a user, page, event, etc)
+     * @param pageSize the number of posts fetched per page
+     * @see FeedService#getNotes(String, int, int)
+     */
+    Publisher<NotePost> getNotes(String ownerId, int pageSize);
+
+    /**
+     * @param prefetchPages the number of pages fetched ahead of the demand, at most
+     * @see GraphApi#fetchPagedConnections(String, String, Class, Map, int)
+     */
+    <T> Publisher<T> fetchConnections(String objectId, String connectionType, Class<T> type,
+                                      Map<String, String> queryParameters, int prefetchPages);
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook;
+
+import org.agorava.facebook.model.Post;
+
+/**
+ * A post found new or updated by a {@link FeedSync} synchronization.
+ */
+public class FeedChange {
+
+    /**
+     * How the post changed since the previous synchronization.
+     */
+    public enum Kind {
+
+        /**
+         * The post was posted since the previous synchronization, or the feed was never synchronized.
+         */
+        ADDED,
+
+        /**
+         * The post was posted before the previous synchronization and updated since.
+         */
+        UPDATED
+    }
+
+    private final FeedSync.Source source;
+
+    private final String ownerId;
+
+    private final Kind kind;
+
+    private final Post post;
+
+    public FeedChange(FeedSync.Source source, String ownerId, Kind kind, Post post) {
+        this.source = source;
+        this.ownerId = ownerId;
+        this.kind = kind;
+        this.post = post;
+    }
+
+    public FeedSync.Source getSource() {
+        return source;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Post getPost() {
+        return post;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + post.getId() + " in " + source + " of " + ownerId;
+    }
+}
@@ -17,11 +17,13 @@
 package org.agorava.facebook;
 
 import org.agorava.facebook.model.FacebookLink;
+import org.agorava.facebook.model.FieldSet;
 import org.agorava.facebook.model.LinkPost;
 import org.agorava.facebook.model.NotePost;
 import org.agorava.facebook.model.Post;
 import org.agorava.facebook.model.StatusPost;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -81,6 +83,32 @@ public interface FeedService {
      */
     List<Post> getFeed(String ownerId, int offset, int limit);
 
+    /**
+     * Retrieves feed entries for a given user.
+     * Only the given fields are requested.
+     *
+     * @param ownerId the Facebook ID or alias for the owner (user, group, event, page, etc) of the feed.
+     * @param offset  the offset into the feed to start retrieving posts.
+     * @param limit   the maximum number of posts to return.
+     * @param fields  the fields to request.
+     * @return a list of {@link Post}s for the specified user.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    List<Post> getFeed(String ownerId, int offset, int limit, FieldSet<? super Post> fields);
+
+    /**
+     * Retrieves the entries of the specified feed posted or updated within a time window, most recent first.
+     *
+     * @param ownerId the owner of the feed (could be a user, page, event, etc)
+     * @param since   the start of the window, or null for no start
+     * @param until   the end of the window, or null for no end
+     * @param offset  the number of posts of the window to skip, most recent first
+     * @param limit   the maximum number of posts to return.
+     * @return a list of {@link Post}s.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    List<Post> getFeed(String ownerId, Date since, Date until, int offset, int limit);
+
     /**
      * Retrieves the user's home feed. This includes entries from the user's friends.
      * Returns up to the most recent 25 posts.
@@ -106,6 +134,31 @@ public interface FeedService {
      */
     List<Post> getHomeFeed(int offset, int limit);
 
+    /**
+     * Retrieves the user's home feed.
+     * Only the given fields are requested.
+     *
+     * @param offset  the offset into the feed to start retrieving posts.
+     * @param limit   the maximum number of posts to return.
+     * @param fields  the fields to request.
+     * @return a list of {@link Post}s from the authenticated user's home feed.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    List<Post> getHomeFeed(int offset, int limit, FieldSet<? super Post> fields);
+
+    /**
+     * Retrieves the entries of the authenticated user's home feed posted or updated within a time window, most recent
+     * first.
+     *
+     * @param since the start of the window, or null for no start
+     * @param until the end of the window, or null for no end
+     * @param offset the number of posts of the window to skip, most recent first
+     * @param limit the maximum number of posts to return.
+     * @return a list of {@link Post}s.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    List<Post> getHomeFeed(Date since, Date until, int offset, int limit);
+
     /**
      * Retrieves a single post.
      *
@@ -115,6 +168,17 @@ public interface FeedService {
      */
     Post getPost(String entryId);
 
+    /**
+     * Retrieves a single post.
+     * Only the given fields are requested.
+     *
+     * @param entryId the entry ID
+     * @param fields  the fields to request.
+     * @return the requested {@link Post}
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    Post getPost(String entryId, FieldSet<? super Post> fields);
+
     /**
      * Retrieves the status entries from the authenticated user's feed.
      * Returns up to the most recent 25 posts.
@@ -163,6 +227,19 @@ public interface FeedService {
      */
     List<StatusPost> getStatuses(String userId, int offset, int limit);
 
+    /**
+     * Retrieves the status entries from the specified feed.
+     * Only the given fields are requested.
+     *
+     * @param userId  the user's ID
+     * @param offset  the offset into the feed to start retrieving posts.
+     * @param limit   the maximum number of posts to return.
+     * @param fields  the fields to request.
+     * @return a list of status {@link Post}s.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    List<StatusPost> getStatuses(String userId, int offset, int limit, FieldSet<? super StatusPost> fields);
+
     /**
      * Retrieves the link entries from the authenticated user's feed.
      * Returns up to the most recent 25 posts.
@@ -215,6 +292,19 @@ public interface FeedService {
      */
     List<LinkPost> getLinks(String ownerId, int offset, int limit);
 
+    /**
+     * Retrieves the link entries from the specified feed.
+     * Only the given fields are requested.
+     *
+     * @param ownerId the owner's ID
+     * @param offset  the offset into the feed to start retrieving posts.
+     * @param limit   the maximum number of posts to return.
+     * @param fields  the fields to request.
+     * @return a list of link {@link Post}s.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    List<LinkPost> getLinks(String ownerId, int offset, int limit, FieldSet<? super LinkPost> fields);
+
     /**
      * Retrieves the note entries from the authenticated user's feed.
      * Returns up to the most recent 25 posts.
@@ -267,6 +357,19 @@ public interface FeedService {
      */
     List<NotePost> getNotes(String ownerId, int offset, int limit);
 
+    /**
+     * Retrieves the note entries from the specified feed.
+     * Only the given fields are requested.
+     *
+     * @param ownerId the owner's ID
+     * @param offset  the offset into the feed to start retrieving posts.
+     * @param limit   the maximum number of posts to return.
+     * @param fields  the fields to request.
+     * @return a list of note {@link Post}s.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    List<NotePost> getNotes(String ownerId, int offset, int limit, FieldSet<? super NotePost> fields);
+
     /**
      * Retrieves the post entries from the authenticated user's feed.
      * Returns up to the most recent 25 posts.
@@ -319,6 +422,32 @@ public interface FeedService {
      */
     List<Post> getPosts(String ownerId, int offset, int limit);
 
+    /**
+     * Retrieves the post entries from the specified feed.
+     * Only the given fields are requested.
+     *
+     * @param ownerId the owner's ID
+     * @param offset  the offset into the feed to start retrieving posts.
+     * @param limit   the maximum number of posts to return.
+     * @param fields  the fields to request.
+     * @return a list of {@link Post}s.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    List<Post> getPosts(String ownerId, int offset, int limit, FieldSet<? super Post> fields);
+
+    /**
+     * Retrieves the post entries of the specified feed posted or updated within a time window, most recent first.
+     *
+     * @param ownerId the owner of the feed (could be a user, page, event, etc)
+     * @param since   the start of the window, or null for no start
+     * @param until   the end of the window, or null for no end
+     * @param offset  the number of posts of the window to skip, most recent first
+     * @param limit   the maximum number of posts to return.
+     * @return a list of {@link Post}s.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    List<Post> getPosts(String ownerId, Date since, Date until, int offset, int limit);
+
     /**
      * Posts a status update to the authenticated user's feed.
      * Requires "publish_stream" permission.
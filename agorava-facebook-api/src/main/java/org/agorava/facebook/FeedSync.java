@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Incremental synchronization of feeds.
+ * Each feed has a watermark, the most recent time a post was posted or updated in it as of the last synchronization.
+ * A synchronization only fetches the posts posted or updated since the watermark, skips the ones it already reported
+ * and moves the watermark forward. Feeds are tracked separately for each access token. When too many posts changed
+ * for a single synchronization, the older ones are reported by the following synchronizations.
+ * <p>
+ * The changes found are returned and also fired as {@code @Facebook} {@link FeedChange} CDI events.
+ */
+public interface FeedSync {
+
+    /**
+     * The feeds that can be synchronized.
+     */
+    enum Source {
+
+        /**
+         * The owner's feed, as returned by {@link FeedService#getFeed(String)}.
+         */
+        FEED,
+
+        /**
+         * The authenticated user's home feed, as returned by {@link FeedService#getHomeFeed()}. The owner is ignored.
+         */
+        HOME,
+
+        /**
+         * The posts of the owner, as returned by {@link FeedService#getPosts(String)}.
+         */
+        POSTS
+    }
+
+    /**
+     * Fetches the posts of a feed posted or updated since its last synchronization. The first synchronization of a feed
+     * only reports its most recent page of posts.
+     *
+     * @param source  the feed to synchronize
+     * @param ownerId the owner of the feed (could be a user, page, event, etc)
+     * @return the changes found, oldest first
+     * @throws org.agorava.api.exception.AgoravaException if there is an error while communicating with Facebook, in
+     *                                                    which case the watermark doesn't move
+     */
+    List<FeedChange> sync(Source source, String ownerId);
+
+    /**
+     * @return the watermark of the feed, or null if it was never synchronized
+     */
+    Date getWatermark(Source source, String ownerId);
+
+    /**
+     * Forgets the watermark of the feed, so that its next synchronization starts over.
+     */
+    void reset(Source source, String ownerId);
+}
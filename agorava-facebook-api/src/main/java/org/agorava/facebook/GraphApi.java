@@ -17,8 +17,10 @@
 package org.agorava.facebook;
 
 import org.agorava.api.rest.Api;
+import org.agorava.facebook.model.FieldSet;
 import org.agorava.facebook.model.ImageType;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -49,6 +51,40 @@ public interface GraphApi extends Api {
      */
     <T> T fetchObject(String objectId, Class<T> type, Map<String, String> queryParameters);
 
+    /**
+     * Fetches an object, requesting only the given fields, and extracts it into the given Java type.
+     *
+     * @param objectId the Facebook object's ID
+     * @param type     the Java type to fetch
+     * @param fields   the fields to request
+     * @return an Java object representing the requested Facebook object.
+     */
+    <T> T fetchObject(String objectId, Class<T> type, FieldSet<? super T> fields);
+
+    /**
+     * Fetches several objects of the same type, extracting them into the given Java type. The objects are requested
+     * with the "ids" parameter, {@link #MAX_IDS_PER_REQUEST} at a time. Requires appropriate permission to fetch the
+     * objects.
+     *
+     * @param objectIds the Facebook objects' IDs
+     * @param type      the Java type to fetch
+     * @param fields    the fields to include in the response.
+     * @return the Java objects representing the requested Facebook objects, keyed by ID in the order Facebook returned
+     * them.
+     */
+    <T> Map<String, T> fetchObjects(Collection<String> objectIds, Class<T> type, String... fields);
+
+    /**
+     * Fetches several objects of the same type, requesting only the given fields, and extracts them into the given Java
+     * type.
+     *
+     * @param objectIds the Facebook objects' IDs
+     * @param type      the Java type to fetch
+     * @param fields    the fields to request
+     * @return the Java objects representing the requested Facebook objects, keyed by ID.
+     */
+    <T> Map<String, T> fetchObjects(Collection<String> objectIds, Class<T> type, FieldSet<? super T> fields);
+
     /**
      * Fetches connections, extracting them into a collection of the given Java type Requires appropriate permission to fetch
      * the object connection.
@@ -61,6 +97,17 @@ public interface GraphApi extends Api {
      */
     <T> List<T> fetchConnections(String objectId, String connectionName, Class<T> type, String... fields);
 
+    /**
+     * Fetches connections, requesting only the given fields, and extracts them into a collection of the given Java type.
+     *
+     * @param objectId       the ID of the object to retrieve the connections for.
+     * @param connectionName the connection name.
+     * @param type           the Java type of each connection.
+     * @param fields         the fields to request.
+     * @return a list of Java objects representing the Facebook objects in the connections.
+     */
+    <T> List<T> fetchConnections(String objectId, String connectionName, Class<T> type, FieldSet<? super T> fields);
+
     /**
      * Fetches connections, extracting them into a collection of the given Java type Requires appropriate permission to fetch
      * the object connection.
@@ -73,6 +120,43 @@ public interface GraphApi extends Api {
      */
     <T> List<T> fetchConnections(String objectId, String connectionName, Class<T> type, Map<String, String> queryParameters);
 
+    /**
+     * Fetches all the pages of a connection lazily. The first page is requested with the given fields, the following ones
+     * by following the "paging.next" links, with one page fetched in the background while the current one is consumed
+     * when the application produces a {@code @Facebook Executor}.
+     *
+     * @param objectId       the ID of the object to retrieve the connections for.
+     * @param connectionName the connection name.
+     * @param type           the Java type of each connection.
+     * @param fields         the fields to include in the response.
+     * @return a lazy view over all the Java objects representing the Facebook objects in the connections.
+     */
+    <T> PagedConnection<T> fetchPagedConnections(String objectId, String connectionName, Class<T> type, String... fields);
+
+    /**
+     * Fetches all the pages of a connection lazily. The first page is requested with the given query parameters, the
+     * following ones by following the "paging.next" links.
+     *
+     * @param objectId        the ID of the object to retrieve the connections for.
+     * @param connectionName  the connection name.
+     * @param type            the Java type of each connection.
+     * @param queryParameters query parameters to include in the request of the first page (a "limit" sets the page size)
+     * @param prefetchPages   how many pages to fetch in the background ahead of the one being consumed, 0 to fetch each
+     *                        page only when the previous one is exhausted. Prefetching needs a
+     *                        {@code @Facebook Executor} produced by the application
+     * @return a lazy view over all the Java objects representing the Facebook objects in the connections.
+     */
+    <T> PagedConnection<T> fetchPagedConnections(String objectId, String connectionName, Class<T> type,
+                                                 Map<String, String> queryParameters, int prefetchPages);
+
+    /**
+     * Starts a batch of operations, sent together to Facebook when the batch is executed instead of one HTTP call per
+     * operation.
+     *
+     * @return a new, empty batch
+     */
+    GraphBatch batch();
+
     /**
      * Fetches an image as an array of bytes.
      *
@@ -121,5 +205,7 @@ public interface GraphApi extends Api {
     
     static final String API_VERSION = "2.5";
 
+    static final int MAX_IDS_PER_REQUEST = 50;
+
  	static final String GRAPH_API_URL = "https://graph.facebook.com/v" + API_VERSION + "/";
 }
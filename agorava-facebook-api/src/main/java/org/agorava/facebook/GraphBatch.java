@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Queues Graph API operations and sends them together as batch requests, at most {@link #MAX_REQUESTS} operations per
+ * HTTP call. Each queued operation returns a future which is completed with its result, or with an
+ * {@link org.agorava.api.exception.AgoravaException} if Facebook reported an error for it, when {@link #execute()} is
+ * called.
+ *
+ * @see GraphApi#batch()
+ */
+public interface GraphBatch {
+
+    /**
+     * The maximum number of operations Facebook accepts in a single batch request.
+     */
+    int MAX_REQUESTS = 50;
+
+    /**
+     * Queues the fetch of an object.
+     *
+     * @param objectId the Facebook object's ID
+     * @param type     the Java type to fetch
+     * @return the future Java object representing the requested Facebook object.
+     */
+    <T> CompletableFuture<T> fetchObject(String objectId, Class<T> type);
+
+    /**
+     * Queues the fetch of an object.
+     *
+     * @param objectId        the Facebook object's ID
+     * @param type            the Java type to fetch
+     * @param queryParameters query parameters to include in the request
+     * @return the future Java object representing the requested Facebook object.
+     */
+    <T> CompletableFuture<T> fetchObject(String objectId, Class<T> type, Map<String, String> queryParameters);
+
+    /**
+     * Queues the fetch of the first page of an object's connections.
+     *
+     * @param objectId       the ID of the object to retrieve the connections for.
+     * @param connectionName the connection name.
+     * @param type           the Java type of each connection.
+     * @param fields         the fields to include in the response.
+     * @return the future list of Java objects representing the Facebook objects in the connections.
+     */
+    <T> CompletableFuture<List<T>> fetchConnections(String objectId, String connectionName, Class<T> type,
+                                                    String... fields);
+
+    /**
+     * Queues the fetch of the first page of an object's connections.
+     *
+     * @param objectId        the ID of the object to retrieve the connections for.
+     * @param connectionName  the connection name.
+     * @param type            the Java type of each connection.
+     * @param queryParameters query parameters to include in the request
+     * @return the future list of Java objects representing the Facebook objects in the connections.
+     */
+    <T> CompletableFuture<List<T>> fetchConnections(String objectId, String connectionName, Class<T> type,
+                                                    Map<String, String> queryParameters);
+
+    /**
+     * Queues the publication of data to an object's connection.
+     *
+     * @param objectId       the object ID to publish to.
+     * @param connectionName the connection name to publish to.
+     * @param data           the data to publish to the connection.
+     * @return the future ID of the newly published object.
+     */
+    CompletableFuture<String> publish(String objectId, String connectionName, Map<String, Object> data);
+
+    /**
+     * Queues the deletion of an object.
+     *
+     * @param objectId the object ID
+     * @return a future completed once the object is deleted
+     */
+    CompletableFuture<Void> delete(String objectId);
+
+    /**
+     * Queues the deletion of an object connection.
+     *
+     * @param objectId       the object ID
+     * @param connectionName the connection name
+     * @return a future completed once the object connection is deleted
+     */
+    CompletableFuture<Void> delete(String objectId, String connectionName);
+
+    /**
+     * @return the number of operations queued and not executed yet
+     */
+    int size();
+
+    /**
+     * Sends the queued operations, in as many batch requests as needed, and completes their futures. The batch is empty
+     * afterwards and can be reused. If a batch request fails as a whole, the futures of all its operations are completed
+     * with the error.
+     */
+    void execute();
+}
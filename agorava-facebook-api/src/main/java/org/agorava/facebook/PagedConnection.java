@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * A lazy view over all the pages of a Graph API connection.
+ * Pages are fetched on demand by following the "paging.next" links returned by Facebook, so that only the page being
+ * consumed and the pages prefetched after it are held in memory.
+ *
+ * @param <T> the Java type of each connection
+ */
+public interface PagedConnection<T> extends Iterable<T>, Closeable {
+
+    /**
+     * Iterates over every connection, fetching the following pages as the iteration goes. Each call starts a new walk
+     * from the first page. An iterator left before its end doesn't have to be closed: once unreachable, it is
+     * released with the pages prefetched for it.
+     *
+     * @return an iterator over the connections
+     * @throws org.agorava.api.exception.AgoravaException from {@code hasNext()} if a page can't be fetched
+     */
+    @Override
+    Iterator<T> iterator();
+
+    /**
+     * Streams every connection, fetching the following pages as the stream is consumed. Closing the stream stops the
+     * pages being prefetched for it.
+     *
+     * @return a sequential stream over the connections
+     */
+    Stream<T> stream();
+
+    /**
+     * Stops every walk started from this connection and cancels the pages being prefetched for them.
+     */
+    @Override
+    void close();
+}
@@ -18,11 +18,14 @@
 package org.agorava.facebook;
 
 import org.agorava.facebook.model.FacebookProfile;
+import org.agorava.facebook.model.FieldSet;
 import org.agorava.facebook.model.ImageType;
 import org.agorava.facebook.model.Reference;
 import org.agorava.spi.UserProfileService;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Operations on User API
@@ -49,6 +52,35 @@ public interface UserService extends UserProfileService {
      */
     FacebookProfile getUserProfile(String userId);
 
+    /**
+     * Retrieves the profile for the specified user, requesting only the given fields.
+     *
+     * @param userId the Facebook user ID to retrieve profile data for.
+     * @param fields the fields to request.
+     * @return the user's profile information.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    FacebookProfile getUserProfile(String userId, FieldSet<? super FacebookProfile> fields);
+
+    /**
+     * Retrieves the profiles of several users at once, with one request per {@link GraphApi#MAX_IDS_PER_REQUEST} users.
+     *
+     * @param userIds the Facebook user IDs to retrieve profile data for.
+     * @return the users' profile information, keyed by user ID.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    Map<String, FacebookProfile> getUserProfiles(Collection<String> userIds);
+
+    /**
+     * Retrieves the profiles of several users at once, requesting only the given fields.
+     *
+     * @param userIds the Facebook user IDs to retrieve profile data for.
+     * @param fields  the fields to request.
+     * @return the users' profile information, keyed by user ID.
+     * @throws AgoravaException if there is an error while communicating with Facebook.
+     */
+    Map<String, FacebookProfile> getUserProfiles(Collection<String> userIds, FieldSet<? super FacebookProfile> fields);
+
     /**
      * Retrieves the user's profile image. Returns the image in Facebook's "normal" type.
      *
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.fql;
+
+/**
+ * A field read by an {@link FqlResultMapper}, remembering its position in the results. The rows of an FQL result set
+ * all list their fields in the same order, so the position found in the first row is only checked against the name
+ * of the field for the following ones, instead of looking the name up again.
+ * <p>
+ * Mappers keep their columns in final fields:
+ * <pre>
+ * private final FqlColumn uid = new FqlColumn("uid");
+ *
+ * public Friend mapObject(FqlResult result) {
+ *     return new Friend(uid.getLong(result, 0L));
+ * }
+ * </pre>
+ * Columns can be shared by the threads mapping the rows of different queries.
+ *
+ * @deprecated see https://developers.facebook.com/docs/reference/fql/
+ */
+public final class FqlColumn {
+
+    private final String name;
+
+    // racy on purpose: every thread checks the position against the name before using it
+    private int position = -1;
+
+    public FqlColumn(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("The name of a column can't be null");
+        }
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the position of this column in the given result, or -1 if the result has no such field
+     */
+    public int indexIn(FqlResult result) {
+        int column = position;
+        if (column >= 0 && column < result.getColumnCount() && name.equals(result.getColumnName(column))) {
+            return column;
+        }
+        column = result.getColumn(name);
+        if (column >= 0) {
+            position = column;
+        }
+        return column;
+    }
+
+    /**
+     * @see FqlResult#getInt(int, int)
+     */
+    public int getInt(FqlResult result, int defaultValue) {
+        return result.getInt(indexIn(result), defaultValue);
+    }
+
+    /**
+     * @see FqlResult#getLong(int, long)
+     */
+    public long getLong(FqlResult result, long defaultValue) {
+        return result.getLong(indexIn(result), defaultValue);
+    }
+
+    /**
+     * @see FqlResult#getDouble(int, double)
+     */
+    public double getDouble(FqlResult result, double defaultValue) {
+        return result.getDouble(indexIn(result), defaultValue);
+    }
+
+    /**
+     * @see FqlResult#getEpochSeconds(int, long)
+     */
+    public long getEpochSeconds(FqlResult result, long defaultValue) {
+        return result.getEpochSeconds(indexIn(result), defaultValue);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -24,7 +24,12 @@ import java.util.Map;
 
 /**
  * Represents a single result item from an FQL query.
- * Given to an {@link FqlResultMapper}.
+ * Given to an {@link FqlResultMapper}. The instance given to a mapper may be reused for the following items, so
+ * mappers must copy the values they need rather than keep the result itself.
+ * <p>
+ * Besides the getters by name, the fields of a result can be read by column, the position of the field in the item.
+ * The primitive getters by column read numbers without boxing them nor going through their text, for mappers reading
+ * many items: such mappers resolve their columns once through {@link FqlColumn}.
  * 
  * @deprecated see https://developers.facebook.com/docs/reference/fql/
  *
@@ -35,6 +40,8 @@ public class FqlResult {
 
     private final Map<String, Object> resultMap;
 
+    private String[] columns;
+
     private static final String MSG_NUMBER = "Field '{0}' is not a number.";
     
     private static final String MSG_OTH = "Field '{0}' is not a {1}.";
@@ -48,6 +55,13 @@ public class FqlResult {
         this.resultMap = resultMap;
     }
 
+    /**
+     * Constructs an FqlResult backed by another representation than a map, for subclasses overriding every getter.
+     */
+    protected FqlResult() {
+        this(null);
+    }
+
     /**
      * Returns the value of the identified field as a String.
      *
@@ -131,6 +145,172 @@ public class FqlResult {
         }
     }
 
+    /**
+     * @return the number of fields of this result
+     */
+    public int getColumnCount() {
+        return columns().length;
+    }
+
+    /**
+     * @param column the position of a field, from 0 to {@link #getColumnCount()} excluded
+     * @return the name of the field at that position
+     */
+    public String getColumnName(int column) {
+        return columns()[column];
+    }
+
+    /**
+     * @param fieldName the name of the field
+     * @return the position of the field, or -1 if this result has no such field
+     */
+    public int getColumn(String fieldName) {
+        String[] names = columns();
+        for (int column = 0; column < names.length; column++) {
+            if (names[column].equals(fieldName)) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param column the position of the field, as returned by {@link #getColumn(String)}
+     * @return true if there is no such field or if it is null
+     */
+    public boolean isNull(int column) {
+        return valueAt(column) == null;
+    }
+
+    /**
+     * Returns the value of the field at the given position as a String.
+     *
+     * @param column the position of the field, as returned by {@link #getColumn(String)}
+     * @return the value of the field as a String, or null if there is no such field or if it is null
+     */
+    public String getString(int column) {
+        Object value = valueAt(column);
+        return value != null ? String.valueOf(value) : null;
+    }
+
+    /**
+     * Returns the value of the identified field as an int.
+     *
+     * @param fieldName    the name of the field
+     * @param defaultValue the value returned if the field is missing or null
+     * @return the value of the field as an int
+     * @throws FqlException if the field cannot be expressed as an int
+     */
+    public int getInt(String fieldName, int defaultValue) {
+        return getInt(getColumn(fieldName), defaultValue);
+    }
+
+    /**
+     * Returns the value of the field at the given position as an int.
+     *
+     * @param column       the position of the field, as returned by {@link #getColumn(String)}
+     * @param defaultValue the value returned if there is no such field or if it is null
+     * @return the value of the field as an int
+     * @throws FqlException if the field cannot be expressed as an int
+     */
+    public int getInt(int column, int defaultValue) {
+        Object value = valueAt(column);
+        if (value == null) {
+            return defaultValue;
+        }
+        long number = toLong(column, value, MSG_NUMBER);
+        if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            throw new FqlException(MessageFormat.format(MSG_NUMBER, getColumnName(column)));
+        }
+        return (int) number;
+    }
+
+    /**
+     * Returns the value of the identified field as a long.
+     *
+     * @param fieldName    the name of the field
+     * @param defaultValue the value returned if the field is missing or null
+     * @return the value of the field as a long
+     * @throws FqlException if the field cannot be expressed as a long
+     */
+    public long getLong(String fieldName, long defaultValue) {
+        return getLong(getColumn(fieldName), defaultValue);
+    }
+
+    /**
+     * Returns the value of the field at the given position as a long.
+     *
+     * @param column       the position of the field, as returned by {@link #getColumn(String)}
+     * @param defaultValue the value returned if there is no such field or if it is null
+     * @return the value of the field as a long
+     * @throws FqlException if the field cannot be expressed as a long
+     */
+    public long getLong(int column, long defaultValue) {
+        Object value = valueAt(column);
+        return value != null ? toLong(column, value, MSG_NUMBER) : defaultValue;
+    }
+
+    /**
+     * Returns the value of the identified field as a double.
+     *
+     * @param fieldName    the name of the field
+     * @param defaultValue the value returned if the field is missing or null
+     * @return the value of the field as a double
+     * @throws FqlException if the field cannot be expressed as a double
+     */
+    public double getDouble(String fieldName, double defaultValue) {
+        return getDouble(getColumn(fieldName), defaultValue);
+    }
+
+    /**
+     * Returns the value of the field at the given position as a double.
+     *
+     * @param column       the position of the field, as returned by {@link #getColumn(String)}
+     * @param defaultValue the value returned if there is no such field or if it is null
+     * @return the value of the field as a double
+     * @throws FqlException if the field cannot be expressed as a double
+     */
+    public double getDouble(int column, double defaultValue) {
+        Object value = valueAt(column);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            throw new FqlException(MessageFormat.format(MSG_NUMBER, getColumnName(column)), e);
+        }
+    }
+
+    /**
+     * Returns the value of the identified time field, in seconds since midnight, January 1, 1970 UTC.
+     *
+     * @param fieldName    the name of the field
+     * @param defaultValue the value returned if the field is missing or null
+     * @return the value of the field as a number of seconds
+     * @throws FqlException if the field cannot be expressed as a time
+     * @see #getTime(String)
+     */
+    public long getEpochSeconds(String fieldName, long defaultValue) {
+        return getEpochSeconds(getColumn(fieldName), defaultValue);
+    }
+
+    /**
+     * Returns the value of the time field at the given position, in seconds since midnight, January 1, 1970 UTC.
+     *
+     * @param column       the position of the field, as returned by {@link #getColumn(String)}
+     * @param defaultValue the value returned if there is no such field or if it is null
+     * @return the value of the field as a number of seconds
+     * @throws FqlException if the field cannot be expressed as a time
+     */
+    public long getEpochSeconds(int column, long defaultValue) {
+        Object value = valueAt(column);
+        return value != null ? toLong(column, value, MSG_OTH) : defaultValue;
+    }
+
     /**
      * Returns the value of the identified field as a simple Object.
      *
@@ -189,4 +369,25 @@ public class FqlResult {
         }
     }
 
+    private String[] columns() {
+        if (columns == null) {
+            columns = resultMap.keySet().toArray(new String[resultMap.size()]);
+        }
+        return columns;
+    }
+
+    private Object valueAt(int column) {
+        return column >= 0 && column < getColumnCount() ? resultMap.get(columns()[column]) : null;
+    }
+
+    private long toLong(int column, Object value, String message) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Long.parseLong(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            throw new FqlException(MessageFormat.format(message, getColumnName(column), "time"), e);
+        }
+    }
 }
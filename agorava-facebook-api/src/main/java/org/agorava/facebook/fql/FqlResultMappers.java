@@ -0,0 +1,480 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.fql;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Builds the {@link FqlResultMapper} of classes whose properties are annotated with {@link FqlField}.
+ * <p>
+ * The constructor and setters of the class are bound once through {@link LambdaMetafactory}, which spins a class
+ * calling each of them directly, so mapping a row costs about as much as a mapper written by hand: no reflection and
+ * no boxing of the int, long and double properties. Each field is looked up by its position in the row, checked
+ * against its name through an {@link FqlColumn}. Annotated public fields without a setter are set through a method
+ * handle, and so are all the properties of the classes not visible from the class loader of this class, such as the
+ * classes of an application deployed in a child class loader, which the spun classes couldn't call.
+ * <p>
+ * The mapped class must be public and have a public constructor without parameters. The properties can be of a
+ * primitive or boxed numeric or boolean type, String, or Date for time fields. Null and missing fields leave the
+ * property unset. The mappers are built once per class and can be shared by threads.
+ *
+ * @deprecated see https://developers.facebook.com/docs/reference/fql/
+ */
+public final class FqlResultMappers {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<FqlResultMapper<?>> MAPPERS = new ClassValue<FqlResultMapper<?>>() {
+        @Override
+        protected FqlResultMapper<?> computeValue(Class<?> type) {
+            return build(type);
+        }
+    };
+
+    private FqlResultMappers() {
+    }
+
+    /**
+     * @param type a public class with a public constructor without parameters and properties annotated with
+     *             {@link FqlField}
+     * @return the mapper of the given class
+     * @throws IllegalArgumentException if the class can't be mapped
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> FqlResultMapper<T> forClass(Class<T> type) {
+        return (FqlResultMapper<T>) MAPPERS.get(type);
+    }
+
+    private static <T> FqlResultMapper<T> build(Class<T> type) {
+        if (!Modifier.isPublic(type.getModifiers()) || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException(type.getName() + " must be a public concrete class to be mapped");
+        }
+        boolean spin = isVisible(type);
+        List<Binder> binders = new ArrayList<Binder>();
+        for (Method method : type.getMethods()) {
+            FqlField field = method.getAnnotation(FqlField.class);
+            if (field != null) {
+                if (method.getParameterTypes().length != 1 || Modifier.isStatic(method.getModifiers())) {
+                    throw new IllegalArgumentException(method + " is annotated with @FqlField but isn't a setter");
+                }
+                binders.add(setterBinder(type, new FqlColumn(field.value()), method, spin));
+            }
+        }
+        for (Class<?> declaring = type; declaring != Object.class; declaring = declaring.getSuperclass()) {
+            for (Field property : declaring.getDeclaredFields()) {
+                FqlField field = property.getAnnotation(FqlField.class);
+                Binder binder = field != null ? fieldBinder(type, new FqlColumn(field.value()), property, spin) : null;
+                if (binder != null) {
+                    binders.add(binder);
+                }
+            }
+        }
+        if (binders.isEmpty()) {
+            throw new IllegalArgumentException(type.getName() + " has no property annotated with @FqlField");
+        }
+        return new GeneratedMapper<T>(type, constructor(type, spin), binders.toArray(new Binder[binders.size()]));
+    }
+
+    /**
+     * The classes spun by {@link LambdaMetafactory} are defined in the class loader of this class, so they can only
+     * call the classes visible from it and not, for instance, the classes of an application deployed in a child class
+     * loader.
+     *
+     * @return true if the given class is visible from the class loader of this class
+     */
+    private static boolean isVisible(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, FqlResultMappers.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> constructor(Class<T> type, boolean spin) {
+        try {
+            MethodHandle constructor = LOOKUP.findConstructor(type, MethodType.methodType(void.class));
+            if (!spin) {
+                final MethodHandle exact = constructor.asType(MethodType.methodType(Object.class));
+                return new Supplier<T>() {
+                    @Override
+                    public T get() {
+                        try {
+                            return (T) exact.invokeExact();
+                        } catch (Throwable e) {
+                            throw propagate(e);
+                        }
+                    }
+                };
+            }
+            return (Supplier<T>) LambdaMetafactory.metafactory(LOOKUP, "get", MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class), constructor, MethodType.methodType(type))
+                    .getTarget().invoke();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " has no public constructor without parameters", e);
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Can't bind the constructor of " + type.getName(), e);
+        }
+    }
+
+    /**
+     * @return the binder of an annotated field, or null if it is bound through its annotated setter
+     */
+    private static Binder fieldBinder(Class<?> type, FqlColumn column, Field field, boolean spin) {
+        String name = field.getName();
+        String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        try {
+            Method setter = type.getMethod(setterName, field.getType());
+            // an annotated setter is bound on its own
+            return setter.isAnnotationPresent(FqlField.class) ? null : setterBinder(type, column, setter, spin);
+        } catch (NoSuchMethodException e) {
+            if (!Modifier.isPublic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())
+                    || Modifier.isStatic(field.getModifiers())) {
+                throw new IllegalArgumentException(field + " is annotated with @FqlField but has no public setter", e);
+            }
+        }
+        try {
+            return handleBinder(column, LOOKUP.unreflectSetter(field), field.getType(), field);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Can't set " + field, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Binder setterBinder(Class<?> type, FqlColumn column, Method method, boolean spin) {
+        Class<?> valueType = method.getParameterTypes()[0];
+        try {
+            MethodHandle setter = LOOKUP.unreflect(method);
+            if (!spin) {
+                return handleBinder(column, setter, valueType, method);
+            }
+            MethodType instantiated = MethodType.methodType(void.class, type, valueType);
+            if (valueType == long.class) {
+                return new LongBinder(column, (ObjLongConsumer<Object>) bind(ObjLongConsumer.class, setter,
+                        MethodType.methodType(void.class, Object.class, long.class), instantiated));
+            }
+            if (valueType == int.class) {
+                return new IntBinder(column, (ObjIntConsumer<Object>) bind(ObjIntConsumer.class, setter,
+                        MethodType.methodType(void.class, Object.class, int.class), instantiated));
+            }
+            if (valueType == double.class) {
+                return new DoubleBinder(column, (ObjDoubleConsumer<Object>) bind(ObjDoubleConsumer.class, setter,
+                        MethodType.methodType(void.class, Object.class, double.class), instantiated));
+            }
+            ValueType value = ValueType.of(valueType, method);
+            return new ObjectBinder(column, value, (BiConsumer<Object, Object>) bind(BiConsumer.class, setter,
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    MethodType.methodType(void.class, type, value.boxed)));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Can't call " + method, e);
+        }
+    }
+
+    /**
+     * @return a binder invoking the given setter handle, still without boxing the int, long and double properties
+     */
+    private static Binder handleBinder(FqlColumn column, MethodHandle setter, Class<?> valueType, Object property) {
+        if (valueType == long.class) {
+            final MethodHandle exact = setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+            return new LongBinder(column, new ObjLongConsumer<Object>() {
+                @Override
+                public void accept(Object target, long value) {
+                    try {
+                        exact.invokeExact(target, value);
+                    } catch (Throwable e) {
+                        throw propagate(e);
+                    }
+                }
+            });
+        }
+        if (valueType == int.class) {
+            final MethodHandle exact = setter.asType(MethodType.methodType(void.class, Object.class, int.class));
+            return new IntBinder(column, new ObjIntConsumer<Object>() {
+                @Override
+                public void accept(Object target, int value) {
+                    try {
+                        exact.invokeExact(target, value);
+                    } catch (Throwable e) {
+                        throw propagate(e);
+                    }
+                }
+            });
+        }
+        if (valueType == double.class) {
+            final MethodHandle exact = setter.asType(MethodType.methodType(void.class, Object.class, double.class));
+            return new DoubleBinder(column, new ObjDoubleConsumer<Object>() {
+                @Override
+                public void accept(Object target, double value) {
+                    try {
+                        exact.invokeExact(target, value);
+                    } catch (Throwable e) {
+                        throw propagate(e);
+                    }
+                }
+            });
+        }
+        ValueType value = ValueType.of(valueType, property);
+        final MethodHandle exact = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return new ObjectBinder(column, value, new BiConsumer<Object, Object>() {
+            @Override
+            public void accept(Object target, Object value) {
+                try {
+                    exact.invokeExact(target, value);
+                } catch (Throwable e) {
+                    throw propagate(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Spins an implementation of the given functional interface calling the setter directly.
+     */
+    private static Object bind(Class<?> functionalInterface, MethodHandle setter, MethodType erased,
+                               MethodType instantiated) {
+        try {
+            return LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(functionalInterface), erased,
+                    setter, instantiated).getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Can't bind " + setter, e);
+        }
+    }
+
+    private static RuntimeException propagate(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new FqlException("Error setting a mapped property: " + e.getMessage(), (Exception) e);
+    }
+
+    /**
+     * The types of the properties set with an object, and how their values are read from a row.
+     */
+    private enum ValueType {
+
+        LONG(Long.class) {
+            @Override
+            Object read(FqlResult row, int column) {
+                return row.getLong(column, 0L);
+            }
+        },
+        INTEGER(Integer.class) {
+            @Override
+            Object read(FqlResult row, int column) {
+                return row.getInt(column, 0);
+            }
+        },
+        DOUBLE(Double.class) {
+            @Override
+            Object read(FqlResult row, int column) {
+                return row.getDouble(column, 0d);
+            }
+        },
+        FLOAT(Float.class) {
+            @Override
+            Object read(FqlResult row, int column) {
+                return (float) row.getDouble(column, 0d);
+            }
+        },
+        BOOLEAN(Boolean.class) {
+            @Override
+            Object read(FqlResult row, int column) {
+                return Boolean.valueOf(row.getString(column));
+            }
+        },
+        STRING(String.class) {
+            @Override
+            Object read(FqlResult row, int column) {
+                return row.getString(column);
+            }
+        },
+        TIME(Date.class) {
+            @Override
+            Object read(FqlResult row, int column) {
+                return new Date(row.getEpochSeconds(column, 0L) * 1000);
+            }
+        };
+
+        final Class<?> boxed;
+
+        ValueType(Class<?> boxed) {
+            this.boxed = boxed;
+        }
+
+        abstract Object read(FqlResult row, int column);
+
+        static ValueType of(Class<?> type, Object property) {
+            if (type == Long.class) {
+                return LONG;
+            }
+            if (type == Integer.class) {
+                return INTEGER;
+            }
+            if (type == Double.class) {
+                return DOUBLE;
+            }
+            if (type == float.class || type == Float.class) {
+                return FLOAT;
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            }
+            if (type == String.class) {
+                return STRING;
+            }
+            if (type == Date.class) {
+                return TIME;
+            }
+            throw new IllegalArgumentException(property + " is of a type FQL fields can't be mapped to: " + type);
+        }
+    }
+
+    /**
+     * Sets one property from a row.
+     */
+    private abstract static class Binder {
+
+        final FqlColumn column;
+
+        Binder(FqlColumn column) {
+            this.column = column;
+        }
+
+        abstract void bind(Object target, FqlResult row);
+    }
+
+    private static final class LongBinder extends Binder {
+
+        private final ObjLongConsumer<Object> setter;
+
+        LongBinder(FqlColumn column, ObjLongConsumer<Object> setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, FqlResult row) {
+            int position = column.indexIn(row);
+            if (!row.isNull(position)) {
+                setter.accept(target, row.getLong(position, 0L));
+            }
+        }
+    }
+
+    private static final class IntBinder extends Binder {
+
+        private final ObjIntConsumer<Object> setter;
+
+        IntBinder(FqlColumn column, ObjIntConsumer<Object> setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, FqlResult row) {
+            int position = column.indexIn(row);
+            if (!row.isNull(position)) {
+                setter.accept(target, row.getInt(position, 0));
+            }
+        }
+    }
+
+    private static final class DoubleBinder extends Binder {
+
+        private final ObjDoubleConsumer<Object> setter;
+
+        DoubleBinder(FqlColumn column, ObjDoubleConsumer<Object> setter) {
+            super(column);
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, FqlResult row) {
+            int position = column.indexIn(row);
+            if (!row.isNull(position)) {
+                setter.accept(target, row.getDouble(position, 0d));
+            }
+        }
+    }
+
+    private static final class ObjectBinder extends Binder {
+
+        private final ValueType type;
+
+        private final BiConsumer<Object, Object> setter;
+
+        ObjectBinder(FqlColumn column, ValueType type, BiConsumer<Object, Object> setter) {
+            super(column);
+            this.type = type;
+            this.setter = setter;
+        }
+
+        @Override
+        void bind(Object target, FqlResult row) {
+            int position = column.indexIn(row);
+            if (!row.isNull(position)) {
+                setter.accept(target, type.read(row, position));
+            }
+        }
+    }
+
+    private static final class GeneratedMapper<T> implements FqlResultMapper<T> {
+
+        private final Class<T> type;
+
+        private final Supplier<T> constructor;
+
+        private final Binder[] binders;
+
+        GeneratedMapper(Class<T> type, Supplier<T> constructor, Binder[] binders) {
+            this.type = type;
+            this.constructor = constructor;
+            this.binders = binders;
+        }
+
+        @Override
+        public T mapObject(FqlResult objectValues) {
+            T object = constructor.get();
+            for (Binder binder : binders) {
+                binder.bind(object, objectValues);
+            }
+            return object;
+        }
+
+        @Override
+        public String toString() {
+            return "FqlResultMapper of " + type.getName();
+        }
+    }
+}
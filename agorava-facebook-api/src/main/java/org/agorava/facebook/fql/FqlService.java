@@ -17,6 +17,7 @@
 package org.agorava.facebook.fql;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for querying Facebook with the Facebook Query Language (FQL).
@@ -37,5 +38,18 @@ public interface FqlService {
      * @return a list of objects of type specified by the given {@link FqlResultMapper}
      */
     <T> List<T> query(String fql, FqlResultMapper<T> mapper);
+
+    /**
+     * Performs several named FQL queries in a single request, mapping the results of each query by its own
+     * {@link FqlResultMapper}. A query can refer to the results of another one by its name, as in
+     * {@code SELECT name FROM user WHERE uid IN (SELECT uid2 FROM #friends)}.
+     * The result sets are mapped in parallel, so a mapper may be called from several threads at once.
+     *
+     * @param namedQueries the FQL queries, by name
+     * @param mappers      the {@link FqlResultMapper} of each query, by the name of the query
+     * @return the mapped results of each query, by name, in the order of {@code namedQueries}
+     * @throws IllegalArgumentException if a query has no mapper
+     */
+    Map<String, List<?>> multiquery(Map<String, String> namedQueries, Map<String, FqlResultMapper<?>> mappers);
  // TODO for Java 8 consider this a @FunctionalInterface (like BiFunction)
 }
@@ -16,6 +16,7 @@
 
 package org.agorava.facebook.model;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -84,11 +85,11 @@ public class Checkin implements Identifiable {
     }
 
     public List<Comment> getComments() {
-        return comments.getList();
+        return comments != null ? comments.getList() : Collections.<Comment>emptyList();
     }
 
     public List<Reference> getLikes() {
-        return likes.getList();
+        return likes != null ? likes.getList() : Collections.<Reference>emptyList();
     }
 
     public List<Reference> getTags() {
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.model;
+
+/**
+ * The fields of a {@link FacebookProfile}, to be selected in a {@link FieldSet}.
+ */
+public enum FacebookProfileField implements GraphField<FacebookProfile> {
+
+    ID("id"),
+    USERNAME("username"),
+    NAME("name"),
+    FIRST_NAME("first_name"),
+    MIDDLE_NAME("middle_name"),
+    LAST_NAME("last_name"),
+    GENDER("gender"),
+    LOCALE("locale"),
+    LINK("link"),
+    WEBSITE("website"),
+    EMAIL("email"),
+    THIRD_PARTY_ID("third_party_id"),
+    TIMEZONE("timezone"),
+    UPDATED_TIME("updated_time"),
+    VERIFIED("verified"),
+    ABOUT("about"),
+    BIO("bio"),
+    BIRTHDAY("birthday"),
+    LOCATION("location"),
+    HOMETOWN("hometown"),
+    INTERESTED_IN("interested_in"),
+    INSPIRATIONAL_PEOPLE("inspirational_people"),
+    LANGUAGES("languages"),
+    SPORTS("sports"),
+    FAVORITE_TEAMS("favorite_teams"),
+    FAVORITE_ATHLETES("favorite_athletes"),
+    RELIGION("religion"),
+    POLITICAL("political"),
+    QUOTES("quotes"),
+    RELATIONSHIP_STATUS("relationship_status"),
+    SIGNIFICANT_OTHER("significant_other"),
+    WORK("work"),
+    EDUCATION("education");
+
+    private final String name;
+
+    FacebookProfileField(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The fields to request for objects bound to the model type T, sent as the "fields" parameter of the request so that
+ * Facebook only returns them:
+ * <pre>
+ * FieldSet&lt;Post&gt; fields = FieldSet.of(PostField.ID, PostField.FROM, PostField.MESSAGE, PostField.CREATED_TIME);
+ * List&lt;Post&gt; feed = feedService.getFeed("me", 0, 25, fields);
+ * </pre>
+ * The properties of the model whose field isn't selected stay null.
+ *
+ * @param <T> the model type the fields are bound to
+ */
+public final class FieldSet<T> {
+
+    private final List<String> names;
+
+    private final String parameter;
+
+    private FieldSet(Set<String> names) {
+        this.names = Collections.unmodifiableList(new ArrayList<String>(names));
+        StringBuilder parameter = new StringBuilder();
+        for (String name : names) {
+            if (parameter.length() > 0) {
+                parameter.append(',');
+            }
+            parameter.append(name);
+        }
+        this.parameter = parameter.toString();
+    }
+
+    /**
+     * @return the set of the given fields, in the given order
+     */
+    @SafeVarargs
+    public static <T> FieldSet<T> of(GraphField<T> first, GraphField<T>... rest) {
+        Set<String> names = new LinkedHashSet<String>();
+        names.add(first.getName());
+        for (GraphField<T> field : rest) {
+            names.add(field.getName());
+        }
+        return new FieldSet<T>(names);
+    }
+
+    /**
+     * @return the set of all the fields of a model, in their declaration order
+     */
+    public static <T, F extends Enum<F> & GraphField<T>> FieldSet<T> allOf(Class<F> fieldType) {
+        Set<String> names = new LinkedHashSet<String>();
+        for (F field : fieldType.getEnumConstants()) {
+            names.add(field.getName());
+        }
+        return new FieldSet<T>(names);
+    }
+
+    /**
+     * @return this set with the given fields added
+     */
+    @SafeVarargs
+    public final FieldSet<T> with(GraphField<T>... fields) {
+        Set<String> extended = new LinkedHashSet<String>(names);
+        for (GraphField<T> field : fields) {
+            extended.add(field.getName());
+        }
+        return new FieldSet<T>(extended);
+    }
+
+    /**
+     * @return the Graph API names of the fields
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * @return the value of the "fields" request parameter
+     */
+    public String toParameter() {
+        return parameter;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof FieldSet && names.equals(((FieldSet<?>) o).names);
+    }
+
+    @Override
+    public int hashCode() {
+        return names.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return parameter;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.model;
+
+/**
+ * A field of a Graph API object bound to the model type T, to be selected in a {@link FieldSet}.
+ *
+ * @param <T> the model type the field is bound to
+ */
+public interface GraphField<T> {
+
+    /**
+     * @return the name of the field in the Graph API
+     */
+    String getName();
+}
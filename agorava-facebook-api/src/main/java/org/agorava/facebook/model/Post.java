@@ -20,6 +20,7 @@ import org.agorava.api.function.Identifiable;
 import org.agorava.api.function.Nameable;
 import org.agorava.facebook.LikeService;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -117,16 +118,17 @@ public class Post implements Identifiable, Nameable {
      * Reference for users who have liked this Post.
      * May not be a complete list and the size may be different than the value returned from getLikeCount().
      * For a complete list of likes, use {@link LikeService#getLikes(String)}.
+     * Empty if the likes weren't among the fields requested.
      */
     public List<Reference> getLikes() {
-        return likes.getList();
+        return likes != null ? likes.getList() : Collections.<Reference>emptyList();
     }
 
     /**
      * The number of likes for this Post. May be different than the size of the list returned from getLikes().
      */
     public int getLikeCount() {
-        return likes.getCount();
+        return likes != null ? likes.getCount() : 0;
     }
 
     public int getSharesCount() {
@@ -134,10 +136,10 @@ public class Post implements Identifiable, Nameable {
     }
 
     /**
-     * The most recent comments for the post.
+     * The most recent comments for the post, empty if the comments weren't among the fields requested.
      */
     public List<Comment> getComments() {
-        return comments.getList();
+        return comments != null ? comments.getList() : Collections.<Comment>emptyList();
     }
 
     public int getCommentCount() {
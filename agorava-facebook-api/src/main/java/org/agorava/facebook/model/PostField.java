@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.model;
+
+/**
+ * The fields of a {@link Post}, to be selected in a {@link FieldSet}.
+ */
+public enum PostField implements GraphField<Post> {
+
+    ID("id"),
+    FROM("from"),
+    TO("to"),
+    MESSAGE("message"),
+    PICTURE("picture"),
+    LINK("link"),
+    NAME("name"),
+    CAPTION("caption"),
+    DESCRIPTION("description"),
+    ICON("icon"),
+    APPLICATION("application"),
+    TYPE("type"),
+    CREATED_TIME("created_time"),
+    UPDATED_TIME("updated_time"),
+    LIKES("likes"),
+    COMMENTS("comments"),
+    SHARES("shares");
+
+    private final String name;
+
+    PostField(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
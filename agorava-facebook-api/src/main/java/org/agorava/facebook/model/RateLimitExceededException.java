@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.model;
+
+import org.agorava.api.exception.AgoravaException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exception thrown when a call is refused before being sent because it would exceed the rate limits of the
+ * application or of the access token, or because Facebook reported them as exhausted.
+ */
+@SuppressWarnings("serial")
+public class RateLimitExceededException extends AgoravaException {
+
+    private final long retryAfterMillis;
+
+    public RateLimitExceededException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return how long to wait before the call could be sent within the limits, as estimated when it was refused
+     */
+    public long getRetryAfter(TimeUnit unit) {
+        return unit.convert(retryAfterMillis, TimeUnit.MILLISECONDS);
+    }
+}
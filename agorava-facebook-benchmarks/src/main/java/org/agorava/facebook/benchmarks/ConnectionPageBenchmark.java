@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.benchmarks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import org.agorava.facebook.jackson.ConnectionReader;
+import org.agorava.facebook.model.Reference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two ways of binding a connection page: parsing the response into a tree and binding the "data" node
+ * again from its text, as {@code GraphApiImpl.fetchConnections} used to, against streaming the "data" array with
+ * {@link ConnectionReader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionPageBenchmark {
+
+    @Param({"25", "100", "500"})
+    int pageSize;
+
+    private byte[] page;
+
+    private ObjectMapper mapper;
+
+    private ObjectReader referenceReader;
+
+    private CollectionType referenceListType;
+
+    @Setup
+    public void setUp() {
+        page = Fixtures.referencePage(pageSize);
+        mapper = Fixtures.newObjectMapper();
+        referenceReader = mapper.readerFor(Reference.class);
+        referenceListType = mapper.getTypeFactory().constructCollectionType(List.class, Reference.class);
+    }
+
+    @Benchmark
+    public List<Reference> treeThenReparse() throws IOException {
+        JsonNode responseNode = mapper.readTree(new ByteArrayInputStream(page));
+        return mapper.readValue(responseNode.get("data").toString(), referenceListType);
+    }
+
+    @Benchmark
+    public List<Reference> streaming() throws IOException {
+        JsonParser jp = mapper.getFactory().createParser(new ByteArrayInputStream(page));
+        try {
+            return ConnectionReader.readDataList(jp, referenceReader);
+        } finally {
+            jp.close();
+        }
+    }
+}
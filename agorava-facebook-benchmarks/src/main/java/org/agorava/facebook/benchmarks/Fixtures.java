@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.agorava.facebook.jackson.FacebookModule;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Shared setup for the benchmarks: an {@link ObjectMapper} configured like the one the CDI module runs with, the
+ * recorded Graph API responses of the "fixtures" resources and generators for Graph API payloads of a given size.
+ */
+final class Fixtures {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String[] POST_TYPES = {"status", "link", "photo"};
+
+    private Fixtures() {
+    }
+
+    static ObjectMapper newObjectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.registerModule(new FacebookModule());
+        return mapper;
+    }
+
+    /**
+     * Loads a recorded Graph API response from the "fixtures" resources.
+     */
+    static byte[] load(String name) throws IOException {
+        InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+        if (in == null) {
+            throw new IOException("No fixture named " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Builds a connection page of references, including the "paging" envelope Facebook sends along with the data.
+     */
+    static byte[] referencePage(int size) {
+        StringBuilder json = new StringBuilder(size * 64);
+        json.append("{\"data\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(100000000000L + i).append("\",\"name\":\"Friend Number ").append(i)
+                    .append("\"}");
+        }
+        json.append("],\"paging\":{\"cursors\":{\"before\":\"QVFIUmE\",\"after\":\"QVFIUmZ\"},")
+                .append("\"next\":\"https://graph.facebook.com/v2.5/me/friends?limit=").append(size)
+                .append("&after=QVFIUmZ\"}}");
+        return json.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Builds a feed page mixing status, link and photo posts, shaped like a "/feed" connection response.
+     */
+    static byte[] feedPage(int size) {
+        StringBuilder json = new StringBuilder(size * 512);
+        json.append("{\"data\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String type = POST_TYPES[i % POST_TYPES.length];
+            json.append("{\"id\":\"100000000000_").append(200000000000L + i).append("\",")
+                    .append("\"from\":{\"id\":\"").append(100000000000L + i % 50).append("\",\"name\":\"Author ")
+                    .append(i % 50).append("\"},")
+                    .append("\"message\":\"Feed entry number ").append(i)
+                    .append(" with enough text to look like a real status update\",")
+                    .append("\"picture\":\"https://scontent.xx.fbcdn.net/v/t1.0-0/p130x130/").append(i).append(".jpg\",")
+                    .append("\"link\":\"https://www.example.com/articles/").append(i).append("\",")
+                    .append("\"name\":\"Article ").append(i).append("\",")
+                    .append("\"caption\":\"www.example.com\",")
+                    .append("\"description\":\"A short description of the linked article\",")
+                    .append("\"icon\":\"https://www.facebook.com/images/icons/post.gif\",")
+                    .append("\"application\":{\"id\":\"2915120374\",\"name\":\"Mobile\"},")
+                    .append("\"type\":\"").append(type).append("\",")
+                    .append("\"shares\":{\"count\":").append(i % 7).append("},")
+                    .append("\"created_time\":\"2016-02-21T16:11:54+0000\",")
+                    .append("\"updated_time\":\"2016-02-22T09:30:00+0000\"}");
+        }
+        json.append("],\"paging\":{\"previous\":\"https://graph.facebook.com/v2.5/me/feed?since=1456071114\",")
+                .append("\"next\":\"https://graph.facebook.com/v2.5/me/feed?until=1455967914\"}}");
+        return json.toString().getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.benchmarks;
+
+import org.agorava.facebook.fql.FqlColumn;
+import org.agorava.facebook.fql.FqlField;
+import org.agorava.facebook.fql.FqlResult;
+import org.agorava.facebook.fql.FqlResultMapper;
+import org.agorava.facebook.fql.FqlResultMappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the mapper built by {@link FqlResultMappers} for an annotated class with a mapper written by hand for the
+ * same class. Scores are given per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public class FqlMapperBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private List<FqlResult> rows;
+
+    private FqlResultMapper<Friend> generatedMapper;
+
+    private FqlResultMapper<Friend> handWrittenMapper;
+
+    @Setup
+    public void setUp() {
+        rows = new ArrayList<FqlResult>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Map<String, Object> row = new LinkedHashMap<String, Object>();
+            row.put("uid", 100000000000L + i);
+            row.put("name", "Friend Number " + i);
+            row.put("friend_count", i % 500);
+            row.put("online_presence", i % 3 == 0);
+            row.put("profile_update_time", 1456071114L + i);
+            rows.add(new FqlResult(row));
+        }
+        generatedMapper = FqlResultMappers.forClass(Friend.class);
+        handWrittenMapper = new HandWrittenMapper();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void generated(Blackhole blackhole) {
+        mapAll(generatedMapper, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void handWritten(Blackhole blackhole) {
+        mapAll(handWrittenMapper, blackhole);
+    }
+
+    private void mapAll(FqlResultMapper<Friend> mapper, Blackhole blackhole) {
+        for (FqlResult row : rows) {
+            blackhole.consume(mapper.mapObject(row));
+        }
+    }
+
+    public static class Friend {
+
+        private long uid;
+
+        private String name;
+
+        private int friendCount;
+
+        private boolean online;
+
+        private Date profileUpdateTime;
+
+        @FqlField("uid")
+        public void setUid(long uid) {
+            this.uid = uid;
+        }
+
+        @FqlField("name")
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @FqlField("friend_count")
+        public void setFriendCount(int friendCount) {
+            this.friendCount = friendCount;
+        }
+
+        @FqlField("online_presence")
+        public void setOnline(boolean online) {
+            this.online = online;
+        }
+
+        @FqlField("profile_update_time")
+        public void setProfileUpdateTime(Date profileUpdateTime) {
+            this.profileUpdateTime = profileUpdateTime;
+        }
+    }
+
+    private static class HandWrittenMapper implements FqlResultMapper<Friend> {
+
+        private final FqlColumn uid = new FqlColumn("uid");
+
+        private final FqlColumn friendCount = new FqlColumn("friend_count");
+
+        private final FqlColumn profileUpdateTime = new FqlColumn("profile_update_time");
+
+        @Override
+        public Friend mapObject(FqlResult result) {
+            Friend friend = new Friend();
+            friend.setUid(uid.getLong(result, 0L));
+            friend.setName(result.getString("name"));
+            friend.setFriendCount(friendCount.getInt(result, 0));
+            friend.setOnline(Boolean.TRUE.equals(result.getBoolean("online_presence")));
+            friend.setProfileUpdateTime(new Date(profileUpdateTime.getEpochSeconds(result, 0L) * 1000));
+            return friend;
+        }
+    }
+}
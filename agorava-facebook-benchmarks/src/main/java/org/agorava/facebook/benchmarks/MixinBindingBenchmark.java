@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.benchmarks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.agorava.facebook.jackson.ConnectionReader;
+import org.agorava.facebook.jackson.ConnectionReader.ElementReader;
+import org.agorava.facebook.fql.FqlResult;
+import org.agorava.facebook.fql.FqlResultMapper;
+import org.agorava.facebook.jackson.FacebookModule;
+import org.agorava.facebook.jackson.PostTypes;
+import org.agorava.facebook.model.Comment;
+import org.agorava.facebook.model.FacebookProfile;
+import org.agorava.facebook.model.ListAndCount;
+import org.agorava.facebook.model.Photo;
+import org.agorava.facebook.model.Post;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the binding of recorded Graph API responses through the mixins and deserializers of
+ * {@code org.agorava.facebook.jackson}, the way the CDI services bind them. Each benchmark binds one whole response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixinBindingBenchmark {
+
+    private byte[] profile;
+
+    private byte[] feed;
+
+    private byte[] photo;
+
+    private byte[] postWithComments;
+
+    private byte[] fqlUsers;
+
+    private ObjectMapper mapper;
+
+    private ObjectReader profileReader;
+
+    private ObjectReader postReader;
+
+    private ObjectReader lazyPostReader;
+
+    private ObjectReader photoReader;
+
+    private ObjectReader mapReader;
+
+    private FqlResultMapper<FqlUser> fqlUserMapper;
+
+    @Setup
+    public void setUp() throws IOException {
+        profile = Fixtures.load("profile.json");
+        feed = Fixtures.load("feed.json");
+        photo = Fixtures.load("photo.json");
+        postWithComments = Fixtures.load("post-comments.json");
+        fqlUsers = Fixtures.load("fql-users.json");
+        mapper = Fixtures.newObjectMapper();
+        profileReader = mapper.readerFor(FacebookProfile.class);
+        postReader = mapper.readerFor(Post.class);
+        lazyPostReader = postReader.withAttribute(FacebookModule.LAZY_NESTED_LISTS, Boolean.TRUE);
+        photoReader = mapper.readerFor(Photo.class);
+        mapReader = mapper.readerFor(Map.class);
+        fqlUserMapper = new FqlUserMapper();
+    }
+
+    @Benchmark
+    public FacebookProfile facebookProfile() throws IOException {
+        return profileReader.readValue(profile);
+    }
+
+    /**
+     * Binds a feed page mixing status, link, photo and video posts to the {@link Post} subclasses.
+     */
+    @Benchmark
+    public List<Post> polymorphicPosts() throws IOException {
+        JsonParser jp = mapper.getFactory().createParser(feed);
+        try {
+            return ConnectionReader.readDataList(jp, new ElementReader<Post>() {
+                @Override
+                public Post read(JsonParser jp) throws IOException {
+                    return postReader.readValue(PostTypes.tag(jp, null));
+                }
+            });
+        } finally {
+            jp.close();
+        }
+    }
+
+    @Benchmark
+    public Photo photoWithImages() throws IOException {
+        return photoReader.readValue(photo);
+    }
+
+    /**
+     * Binds a post with a page of comments, which go through the {@link ListAndCount} deserializer of
+     * {@code PostMixin}.
+     */
+    @Benchmark
+    public List<Comment> commentListAndCount() throws IOException {
+        return bindPost(postReader, postWithComments).getComments();
+    }
+
+    /**
+     * Binds the same post with its nested lists deferred and only reads its message, as a feed scan would.
+     */
+    @Benchmark
+    public String deferredCommentList() throws IOException {
+        return bindPost(lazyPostReader, postWithComments).getMessage();
+    }
+
+    /**
+     * Maps the rows of an FQL query response with an {@link FqlResultMapper}, nested objects included.
+     */
+    @Benchmark
+    public List<FqlUser> fqlResultMapping() throws IOException {
+        Map<String, Object> response = mapReader.readValue(fqlUsers);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) response.get("data");
+        List<FqlUser> users = new ArrayList<FqlUser>(rows.size());
+        for (Map<String, Object> row : rows) {
+            users.add(fqlUserMapper.mapObject(new FqlResult(row)));
+        }
+        return users;
+    }
+
+    /**
+     * Streams the post and tags it with its type for the polymorphic binding, as {@code FeedServiceImpl} does.
+     */
+    private Post bindPost(ObjectReader postReader, byte[] post) throws IOException {
+        JsonParser jp = mapper.getFactory().createParser(post);
+        try {
+            jp.nextToken();
+            return postReader.readValue(PostTypes.tag(jp, null));
+        } finally {
+            jp.close();
+        }
+    }
+
+    public static class FqlUser {
+
+        Long uid;
+
+        String name;
+
+        String birthdayDate;
+
+        Date profileUpdateTime;
+
+        Boolean appUser;
+
+        Integer friendCount;
+
+        String city;
+    }
+
+    private static class FqlUserMapper implements FqlResultMapper<FqlUser> {
+
+        private final FqlResultMapper<String> cityMapper = new FqlResultMapper<String>() {
+            @Override
+            public String mapObject(FqlResult objectValues) {
+                return objectValues.getString("city");
+            }
+        };
+
+        @Override
+        public FqlUser mapObject(FqlResult objectValues) {
+            FqlUser user = new FqlUser();
+            user.uid = objectValues.getLong("uid");
+            user.name = objectValues.getString("name");
+            user.birthdayDate = objectValues.getString("birthday_date");
+            user.profileUpdateTime = objectValues.getTime("profile_update_time");
+            user.appUser = objectValues.getBoolean("is_app_user");
+            user.friendCount = objectValues.getInteger("friend_count");
+            user.city = objectValues.getObject("current_location", cityMapper);
+            return user;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.benchmarks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.agorava.facebook.jackson.ConnectionReader;
+import org.agorava.facebook.jackson.ConnectionReader.ElementReader;
+import org.agorava.facebook.jackson.PostTypes;
+import org.agorava.facebook.model.Post;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the polymorphic binding of feed posts read as trees, with and without the {@code node.toString()} round
+ * trip, against streaming them as {@code FeedServiceImpl} does now. The tree benchmarks start from parsed trees while
+ * the streamed one parses the whole page, so that it is the cost of the read as a whole that is compared. Scores are
+ * per post; run with {@code -prof gc} to get the bytes allocated per post.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostBindingBenchmark {
+
+    private static final int POSTS = 100;
+
+    private byte[] page;
+
+    private List<ObjectNode> posts;
+
+    private ObjectMapper mapper;
+
+    private ObjectReader postReader;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = Fixtures.newObjectMapper();
+        postReader = mapper.readerFor(Post.class);
+        posts = new ArrayList<ObjectNode>(POSTS);
+        page = Fixtures.feedPage(POSTS);
+        for (JsonNode post : mapper.readTree(page).get("data")) {
+            posts.add((ObjectNode) post);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSTS)
+    public void stringRoundTrip(Blackhole blackhole) throws IOException {
+        for (ObjectNode post : posts) {
+            tagPostType(post);
+            Post bound = mapper.reader(Post.class).readValue(post.toString());
+            blackhole.consume(bound);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSTS)
+    public void cachedReaderFromTree(Blackhole blackhole) throws IOException {
+        for (ObjectNode post : posts) {
+            tagPostType(post);
+            Post bound = postReader.readValue(post);
+            blackhole.consume(bound);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSTS)
+    public void streamed(final Blackhole blackhole) throws IOException {
+        JsonParser jp = mapper.getFactory().createParser(page);
+        try {
+            ConnectionReader.readDataList(jp, new ElementReader<Post>() {
+                @Override
+                public Post read(JsonParser jp) throws IOException {
+                    Post bound = postReader.readValue(PostTypes.tag(jp, null));
+                    blackhole.consume(bound);
+                    return bound;
+                }
+            });
+        } finally {
+            jp.close();
+        }
+    }
+
+    private static void tagPostType(ObjectNode post) {
+        String postType = post.get("type").textValue();
+        post.put("postType", postType);
+        post.put("type", postType);
+    }
+}
@@ -19,11 +19,21 @@
  */
 package org.agorava;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.agorava.api.exception.AgoravaException;
 import org.agorava.api.oauth.OAuthService;
+import org.agorava.api.rest.Response;
+import org.agorava.api.rest.Verb;
 import org.agorava.facebook.Facebook;
+import org.agorava.facebook.impl.RateGovernor;
+import org.agorava.facebook.impl.TokenScope;
 import org.agorava.spi.ProviderApiService;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * @author Antoine Sabot-Durand
@@ -34,8 +44,65 @@ public abstract class FacebookBaseService extends ProviderApiService {
     @Facebook
     private OAuthService service;
 
+    @Inject
+    private RateGovernor rateGovernor;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
     @Override
     public OAuthService getService() {
         return service;
     }
+
+    /**
+     * @return a hash of the access token the requests are signed with, identifying whose view of the Graph API they get
+     * @see TokenScope
+     */
+    public String getTokenScope() {
+        return TokenScope.of(service.getAccessToken());
+    }
+
+    /**
+     * Sends a signed request within the rate limits and adapts them to the usage reported in the response.
+     */
+    public Response sendRequest(Verb verb, String uri) {
+        return sendRequest(verb, uri, Collections.<String, Object>emptyMap(), 1);
+    }
+
+    /**
+     * Sends a signed request within the rate limits and adapts them to the usage reported in the response.
+     *
+     * @param calls the number of calls the request counts for, more than one for batch requests
+     */
+    public Response sendRequest(Verb verb, String uri, Map<String, ?> parameters, int calls) {
+        String tokenScope = getTokenScope();
+        rateGovernor.acquire(tokenScope, calls);
+        Response response = parameters.isEmpty() ? service.sendSignedRequest(verb, uri)
+                : service.sendSignedRequest(verb, uri, parameters);
+        rateGovernor.record(tokenScope, response);
+        return response;
+    }
+
+    /**
+     * Sends a signed GET request within the rate limits and opens a parser on the stream of its response, so that the
+     * response is parsed as it is read and never held as a whole in memory.
+     *
+     * @throws AgoravaException if Facebook doesn't answer with a success status
+     */
+    protected JsonParser openParser(String uri) throws IOException {
+        Response response = sendRequest(Verb.GET, uri);
+        if (!response.isSuccessful()) {
+            throw new AgoravaException("Facebook returned HTTP " + response.getCode() + ": " + response.getBody());
+        }
+        return objectMapper.getFactory().createParser(response.getStream());
+    }
+
+    /**
+     * Waits for a call within the rate limits, for requests sent through {@link OAuthService} methods that don't give
+     * access to the response headers.
+     */
+    protected void acquireCall() {
+        rateGovernor.acquire(getTokenScope(), 1);
+    }
 }
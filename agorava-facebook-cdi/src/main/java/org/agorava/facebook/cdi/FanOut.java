@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.cdi;
+
+import org.agorava.api.exception.AgoravaException;
+import org.agorava.api.oauth.OAuthService;
+import org.agorava.facebook.Facebook;
+import org.agorava.facebook.impl.FacebookExecutors;
+import org.agorava.facebook.impl.TokenScope;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Runs an operation of the {@code @Facebook} services for many owners in parallel, such as the feeds of a list of
+ * pages:
+ * <pre>
+ * &#064;Inject &#064;Facebook FanOut fanOut;
+ * &#064;Inject &#064;Facebook FeedService feedService;
+ *
+ * FanOutResult&lt;List&lt;Post&gt;&gt; feeds = fanOut.run(pageIds, feedService::getFeed);
+ * List&lt;Post&gt; posts = FanOutResult.merge(feeds);
+ * </pre>
+ * Operations run on the executor resolved by {@link FacebookExecutors}, within the bounds of the {@code @Facebook}
+ * {@link FanOutPolicy} of the application: at most so many operations at once for the whole application and for the
+ * access token of the caller. The caller waits for its operations to start within these bounds, then for all of them
+ * to end. An operation failing for one owner doesn't stop the others, its exception is returned with the results.
+ * <p>
+ * Runs can't be nested: an operation calling {@link #run} would wait for bounds held by its own run, so the call is
+ * rejected with an {@link IllegalStateException}.
+ */
+@Facebook
+@ApplicationScoped
+public class FanOut {
+
+    private static final int MAX_TOKEN_BOUNDS = 10000;
+
+    private static final ThreadLocal<Boolean> IN_OPERATION = new ThreadLocal<Boolean>();
+
+    @Inject
+    @Facebook
+    private OAuthService service;
+
+    @Inject
+    @Facebook
+    private Instance<FanOutPolicy> policies;
+
+    @Inject
+    @Facebook
+    private Instance<Executor> executors;
+
+    private FanOutPolicy policy;
+
+    private Semaphore appOperations;
+
+    private Map<String, Semaphore> tokenOperations;
+
+    @PostConstruct
+    void init() {
+        policy = policies.isUnsatisfied() ? FanOutPolicy.defaults() : policies.get();
+        appOperations = new Semaphore(policy.getMaxAppOperations());
+        // an evicted bound may still be held by running operations, the next ones of its token then get a new one
+        tokenOperations = new LinkedHashMap<String, Semaphore>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Semaphore> eldest) {
+                return size() > MAX_TOKEN_BOUNDS;
+            }
+        };
+    }
+
+    /**
+     * Runs the operation for each owner and waits for all of them to end.
+     *
+     * @param ownerIds  the IDs of the owners, duplicates are run once
+     * @param operation the operation to run for each owner, such as {@code feedService::getFeed}
+     * @return the results of the operation and its failures, by owner ID
+     * @throws AgoravaException if the calling thread is interrupted while waiting
+     * @throws IllegalStateException if called from an operation of another run
+     */
+    public <R> FanOutResult<R> run(Collection<String> ownerIds, final Function<? super String, ? extends R> operation) {
+        if (IN_OPERATION.get() != null) {
+            throw new IllegalStateException("FanOut.run can't be called from one of its operations");
+        }
+        final List<String> ids = new ArrayList<String>(new LinkedHashSet<String>(ownerIds));
+        final Object[] results = new Object[ids.size()];
+        final RuntimeException[] failures = new RuntimeException[ids.size()];
+        final CountDownLatch done = new CountDownLatch(ids.size());
+        final Semaphore tokenBound = tokenOperations(TokenScope.of(service.getAccessToken()));
+        Executor executor = FacebookExecutors.resolve(executors);
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                tokenBound.acquire();
+                try {
+                    appOperations.acquire();
+                } catch (InterruptedException e) {
+                    tokenBound.release();
+                    throw e;
+                }
+                final int index = i;
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            IN_OPERATION.set(Boolean.TRUE);
+                            try {
+                                results[index] = operation.apply(ids.get(index));
+                            } catch (RuntimeException e) {
+                                failures[index] = e;
+                            } catch (Error e) {
+                                failures[index] = new AgoravaException("Operation failed for " + ids.get(index), e);
+                                throw e;
+                            } finally {
+                                IN_OPERATION.remove();
+                                appOperations.release();
+                                tokenBound.release();
+                                done.countDown();
+                            }
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    appOperations.release();
+                    tokenBound.release();
+                    failures[index] = e;
+                    done.countDown();
+                }
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AgoravaException("Interrupted while fanning out over " + ids.size() + " owners", e);
+        }
+        return collect(ids, results, failures);
+    }
+
+    public FanOutPolicy getPolicy() {
+        return policy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> FanOutResult<R> collect(List<String> ids, Object[] results, RuntimeException[] failures) {
+        Map<String, R> succeeded = new LinkedHashMap<String, R>();
+        Map<String, RuntimeException> failed = new LinkedHashMap<String, RuntimeException>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (failures[i] != null) {
+                failed.put(ids.get(i), failures[i]);
+            } else {
+                succeeded.put(ids.get(i), (R) results[i]);
+            }
+        }
+        return new FanOutResult<R>(succeeded, failed);
+    }
+
+    private synchronized Semaphore tokenOperations(String tokenScope) {
+        Semaphore bound = tokenOperations.get(tokenScope);
+        if (bound == null) {
+            bound = new Semaphore(policy.getMaxTokenOperations());
+            tokenOperations.put(tokenScope, bound);
+        }
+        return bound;
+    }
+}
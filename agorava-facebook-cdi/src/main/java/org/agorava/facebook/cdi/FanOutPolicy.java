@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.cdi;
+
+/**
+ * Bounds on the operations run in parallel by {@link FanOut}.
+ * <p>
+ * Applications change the default bounds by producing an {@code @Facebook FanOutPolicy}:
+ * <pre>
+ * &#064;Produces &#064;Facebook
+ * FanOutPolicy fanOutPolicy() {
+ *     return new FanOutPolicy(32, 8);
+ * }
+ * </pre>
+ * The bounds only limit how many operations are in flight at once. Their calls still take their share of the budgets
+ * of the {@link RateLimitPolicy}, if any.
+ */
+public class FanOutPolicy {
+
+    /**
+     * The operations run at once for the whole application when no policy is produced.
+     */
+    public static final int DEFAULT_MAX_APP_OPERATIONS = 16;
+
+    /**
+     * The operations run at once for each access token when no policy is produced.
+     */
+    public static final int DEFAULT_MAX_TOKEN_OPERATIONS = 4;
+
+    private final int maxAppOperations;
+
+    private final int maxTokenOperations;
+
+    /**
+     * @param maxAppOperations   the operations run at once for the whole application
+     * @param maxTokenOperations the operations run at once for each access token
+     */
+    public FanOutPolicy(int maxAppOperations, int maxTokenOperations) {
+        if (maxAppOperations <= 0 || maxTokenOperations <= 0) {
+            throw new IllegalArgumentException("Operation bounds must be positive, were " + maxAppOperations + " and "
+                    + maxTokenOperations);
+        }
+        this.maxAppOperations = maxAppOperations;
+        this.maxTokenOperations = maxTokenOperations;
+    }
+
+    /**
+     * @return the policy applied when the application doesn't produce one
+     */
+    public static FanOutPolicy defaults() {
+        return new FanOutPolicy(DEFAULT_MAX_APP_OPERATIONS, DEFAULT_MAX_TOKEN_OPERATIONS);
+    }
+
+    public int getMaxAppOperations() {
+        return maxAppOperations;
+    }
+
+    public int getMaxTokenOperations() {
+        return maxTokenOperations;
+    }
+}
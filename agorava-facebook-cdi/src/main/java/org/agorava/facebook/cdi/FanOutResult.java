@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.cdi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of a {@link FanOut}: the result of the operation for each owner it succeeded for and the exception it
+ * failed with for the others.
+ *
+ * @param <R> the type of the results of the operation
+ */
+public class FanOutResult<R> {
+
+    private final Map<String, R> results;
+
+    private final Map<String, RuntimeException> failures;
+
+    FanOutResult(Map<String, R> results, Map<String, RuntimeException> failures) {
+        this.results = Collections.unmodifiableMap(results);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Concatenates the collections returned by the operation, such as the feeds or friends of each owner.
+     *
+     * @param result the outcome of an operation returning collections
+     * @return the elements of every collection, in the order of the owners the operation succeeded for
+     */
+    public static <E> List<E> merge(FanOutResult<? extends Collection<? extends E>> result) {
+        List<E> merged = new ArrayList<E>();
+        for (Collection<? extends E> elements : result.getResults().values()) {
+            if (elements != null) {
+                merged.addAll(elements);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * @return the result of each owner the operation succeeded for, by owner ID, in the order the IDs were given
+     */
+    public Map<String, R> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the exception thrown for each owner the operation failed for, by owner ID, in the order the IDs were given
+     */
+    public Map<String, RuntimeException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return true if the operation failed for no owner
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.cdi;
+
+import org.agorava.facebook.Facebook;
+import org.agorava.facebook.GraphApi;
+import org.agorava.facebook.impl.ConditionalGraphFetcher;
+import org.agorava.facebook.impl.VersionedObject;
+import org.agorava.facebook.model.FieldSet;
+
+import javax.decorator.Decorator;
+import javax.decorator.Delegate;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Serves {@link GraphApi#fetchObject} from the {@code @Facebook} {@link GraphObjectCache} of the application. Objects
+ * are cached per access token, object ID, query parameters and Java type. Without a cache produced by the application,
+ * calls go straight to the Graph API.
+ */
+@Decorator
+public abstract class GraphApiCacheDecorator implements GraphApi {
+
+    @Inject
+    @Delegate
+    @Facebook
+    private GraphApi delegate;
+
+    @Inject
+    @Facebook
+    private Instance<GraphObjectCache> caches;
+
+    @Inject
+    private ConditionalGraphFetcher fetcher;
+
+    @Override
+    public <T> T fetchObject(String objectId, Class<T> type) {
+        return fetchObject(objectId, type, Collections.<String, String>emptyMap());
+    }
+
+    @Override
+    public <T> T fetchObject(String objectId, Class<T> type, FieldSet<? super T> fields) {
+        return fetchObject(objectId, type, Collections.singletonMap("fields", fields.toParameter()));
+    }
+
+    @Override
+    public <T> T fetchObject(String objectId, Class<T> type, Map<String, String> queryParameters) {
+        if (caches.isUnsatisfied()) {
+            return delegate.fetchObject(objectId, type, queryParameters);
+        }
+        GraphObjectCache cache = caches.get();
+        String key = cacheKey(objectId, type, queryParameters);
+        GraphObjectCache.Entry entry = cache.get(key);
+        if (entry != null && !entry.isExpired()) {
+            cache.recordHit();
+            return type.cast(entry.value);
+        }
+        if (entry != null && entry.etag != null) {
+            VersionedObject<T> changed = fetcher.revalidate(objectId, type, queryParameters, entry.etag);
+            if (changed == null) {
+                cache.recordRevalidation(key, entry);
+                return type.cast(entry.value);
+            }
+            cache.recordMiss();
+            cache.put(key, changed.getValue(), changed.getEtag());
+            return changed.getValue();
+        }
+        cache.recordMiss();
+        VersionedObject<T> fetched = fetcher.fetch(objectId, type, queryParameters);
+        cache.put(key, fetched.getValue(), fetched.getEtag());
+        return fetched.getValue();
+    }
+
+    private String cacheKey(String objectId, Class<?> type, Map<String, String> queryParameters) {
+        StringBuilder key = new StringBuilder(fetcher.getTokenScope()).append('|').append(objectId).append('|')
+                .append(type.getName());
+        for (Map.Entry<String, String> parameter : new TreeMap<String, String>(queryParameters).entrySet()) {
+            key.append('|').append(parameter.getKey()).append('=').append(parameter.getValue());
+        }
+        return key.toString();
+    }
+}
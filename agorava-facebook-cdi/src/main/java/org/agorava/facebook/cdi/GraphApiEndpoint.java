@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.agorava.facebook.cdi;
+
+import org.agorava.facebook.GraphApi;
+
+import javax.enterprise.inject.Instance;
+
+/**
+ * Where the Graph API requests are sent, {@link GraphApi#GRAPH_API_URL} unless the application produces an
+ * {@code @Facebook GraphApiEndpoint}, for instance to test against a local stub server:
+ * <pre>
+ * &#064;Produces &#064;Facebook
+ * GraphApiEndpoint graphApiEndpoint() {
+ *     return new GraphApiEndpoint("http://localhost:8089/v2.2/");
+ * }
+ * </pre>
+ * Batch requests, including the revalidations of the {@link GraphObjectCache}, are sent to the same endpoint.
+ */
+public class GraphApiEndpoint {
+
+    private final String baseUrl;
+
+    /**
+     * @param baseUrl the URL the object IDs and connection paths are appended to, a trailing slash is added if missing
+     */
+    public GraphApiEndpoint(String baseUrl) {
+        if (baseUrl == null || baseUrl.isEmpty()) {
+            throw new IllegalArgumentException("The Graph API base URL can't be empty");
+        }
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+    }
+
+    /**
+     * @return the endpoint used when the application doesn't produce one
+     */
+    public static GraphApiEndpoint defaults() {
+        return new GraphApiEndpoint(GraphApi.GRAPH_API_URL);
+    }
+
+    /**
+     * @param endpoints the {@code @Facebook GraphApiEndpoint} beans of the application
+     * @return the base URL of the endpoint produced by the application, or of the default one if there is none
+     */
+    public static String baseUrl(Instance<GraphApiEndpoint> endpoints) {
+        return endpoints.isUnsatisfied() ? GraphApi.GRAPH_API_URL : endpoints.get().getBaseUrl();
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.cdi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the objects fetched through {@link org.agorava.facebook.GraphApi#fetchObject(String, Class)}.
+ * <p>
+ * Caching is enabled by producing an {@code @Facebook GraphObjectCache}, usually application scoped:
+ * <pre>
+ * &#064;Produces &#064;Facebook &#064;ApplicationScoped
+ * GraphObjectCache graphObjectCache() {
+ *     return new GraphObjectCache(10000, 5, TimeUnit.MINUTES);
+ * }
+ * </pre>
+ * Entries are evicted least recently used first once the cache is full. Once their time to live is over, entries
+ * fetched with an ETag are revalidated with an If-None-Match request rather than fetched again.
+ *
+ * @see GraphApiCacheDecorator
+ */
+public class GraphObjectCache {
+
+    private final int maximumSize;
+
+    private final long timeToLiveNanos;
+
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong revalidationCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maximumSize the maximum number of objects kept
+     * @param timeToLive  how long an object is served without asking Facebook whether it changed
+     * @param unit        the unit of timeToLive
+     */
+    public GraphObjectCache(int maximumSize, long timeToLive, TimeUnit unit) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive, was " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.entries = new LinkedHashMap<String, GraphObjectCache.Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GraphObjectCache.Entry> eldest) {
+                if (size() > GraphObjectCache.this.maximumSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the number of lookups served from the cache without asking Facebook
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of lookups for which the object was fetched from Facebook
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the number of expired objects Facebook reported as not modified
+     */
+    public long getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    /**
+     * @return the number of objects evicted to keep the cache within its maximum size
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(String key, Object value, String etag) {
+        entries.put(key, new Entry(value, etag, System.nanoTime() + timeToLiveNanos));
+    }
+
+    synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    void recordHit() {
+        hitCount.incrementAndGet();
+    }
+
+    void recordMiss() {
+        missCount.incrementAndGet();
+    }
+
+    /**
+     * Serves an expired entry again for a full time to live, after Facebook reported it as not modified.
+     */
+    void recordRevalidation(String key, Entry entry) {
+        revalidationCount.incrementAndGet();
+        put(key, entry.value, entry.etag);
+    }
+
+    static final class Entry {
+
+        final Object value;
+
+        final String etag;
+
+        private final long expiresAt;
+
+        Entry(Object value, String etag, long expiresAt) {
+            this.value = value;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
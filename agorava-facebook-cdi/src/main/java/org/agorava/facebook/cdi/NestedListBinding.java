@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.cdi;
+
+/**
+ * When the lists nested in the model objects, such as the recipients, likes and comments of a post or the tags of a
+ * photo, are bound.
+ * <p>
+ * Nested lists are bound along with their object unless the application produces another
+ * {@code @Facebook NestedListBinding}:
+ * <pre>
+ * &#064;Produces &#064;Facebook
+ * NestedListBinding nestedListBinding() {
+ *     return NestedListBinding.LAZY;
+ * }
+ * </pre>
+ */
+public enum NestedListBinding {
+
+    /**
+     * Nested lists are bound along with their object.
+     */
+    EAGER,
+
+    /**
+     * Nested lists are kept as a buffer of the tokens read and bound the first time they are accessed, which saves
+     * binding, and the allocation of their elements, for applications that only read some of them.
+     */
+    LAZY
+}
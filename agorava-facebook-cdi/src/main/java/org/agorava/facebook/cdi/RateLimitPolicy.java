@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.cdi;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Call budgets governing the requests sent to the Graph API.
+ * <p>
+ * Budgets are enabled by producing an {@code @Facebook RateLimitPolicy}:
+ * <pre>
+ * &#064;Produces &#064;Facebook
+ * RateLimitPolicy rateLimitPolicy() {
+ *     return new RateLimitPolicy(50, 2, 5, TimeUnit.SECONDS);
+ * }
+ * </pre>
+ * Each call then takes one call from the budget of the application and one from the budget of its access token, both
+ * refilled at a steady rate and allowing bursts of one second worth of calls. Calls wait for their budget up to the
+ * maximum wait and are refused with a {@link org.agorava.facebook.model.RateLimitExceededException} beyond that. A
+ * batch request takes one call per operation: when that is more than a burst, it waits for a full budget at most and
+ * leaves the budget in debt, the following calls waiting until it is paid back.
+ * <p>
+ * Budgets adapt to the usage Facebook reports in the X-App-Usage and X-Business-Use-Case-Usage headers: refill slows
+ * down once usage passes half of the usage ceiling and calls stop once it reaches the ceiling, until Facebook's
+ * estimated time to regain access has passed. Without a policy produced by the application, no budgets apply and calls
+ * only stop once Facebook reports a usage of 100%.
+ */
+public class RateLimitPolicy {
+
+    /**
+     * The usage ceiling of the default constructor, in percent, leaving some room for calls already in flight.
+     */
+    public static final int DEFAULT_USAGE_CEILING = 90;
+
+    private final double appCallsPerSecond;
+
+    private final double tokenCallsPerSecond;
+
+    private final long maxWaitNanos;
+
+    private final int usageCeiling;
+
+    /**
+     * @param appCallsPerSecond   the calls per second allowed for the whole application
+     * @param tokenCallsPerSecond the calls per second allowed for each access token
+     * @param maxWait             how long a call may wait for its budget before being refused
+     * @param unit                the unit of maxWait
+     */
+    public RateLimitPolicy(double appCallsPerSecond, double tokenCallsPerSecond, long maxWait, TimeUnit unit) {
+        this(appCallsPerSecond, tokenCallsPerSecond, maxWait, unit, DEFAULT_USAGE_CEILING);
+    }
+
+    /**
+     * @param appCallsPerSecond   the calls per second allowed for the whole application
+     * @param tokenCallsPerSecond the calls per second allowed for each access token
+     * @param maxWait             how long a call may wait for its budget before being refused
+     * @param unit                the unit of maxWait
+     * @param usageCeiling        the usage reported by Facebook, in percent, at which calls stop
+     */
+    public RateLimitPolicy(double appCallsPerSecond, double tokenCallsPerSecond, long maxWait, TimeUnit unit,
+                           int usageCeiling) {
+        if (!(appCallsPerSecond > 0) || !(tokenCallsPerSecond > 0)) {
+            throw new IllegalArgumentException("Call rates must be positive, were " + appCallsPerSecond + " and "
+                    + tokenCallsPerSecond);
+        }
+        if (usageCeiling <= 0 || usageCeiling > 100) {
+            throw new IllegalArgumentException("usageCeiling must be between 1 and 100, was " + usageCeiling);
+        }
+        this.appCallsPerSecond = appCallsPerSecond;
+        this.tokenCallsPerSecond = tokenCallsPerSecond;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.usageCeiling = usageCeiling;
+    }
+
+    /**
+     * @return a policy without budgets, only stopping calls once Facebook reports a usage of 100%
+     */
+    public static RateLimitPolicy unlimited() {
+        return new RateLimitPolicy(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 0, TimeUnit.NANOSECONDS, 100);
+    }
+
+    public double getAppCallsPerSecond() {
+        return appCallsPerSecond;
+    }
+
+    public double getTokenCallsPerSecond() {
+        return tokenCallsPerSecond;
+    }
+
+    public long getMaxWait(TimeUnit unit) {
+        return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public int getUsageCeiling() {
+        return usageCeiling;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.cdi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.agorava.facebook.model.Post;
+
+/**
+ * Receives the posts bound by {@link org.agorava.facebook.FeedService} along with the JSON they were bound from, to
+ * keep them beyond the lifetime of the objects.
+ * <p>
+ * A sink is enabled by producing an {@code @Facebook RawPostSink}, usually application scoped. It is called from the
+ * threads binding the posts, so it must be thread safe.
+ */
+public interface RawPostSink {
+
+    /**
+     * @param post the post bound
+     * @param json the JSON the post was bound from, which carries its type in a "postType" member
+     */
+    void accept(Post post, JsonNode json);
+}
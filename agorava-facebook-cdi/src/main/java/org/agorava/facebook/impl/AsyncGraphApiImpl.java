@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.facebook.AsyncGraphApi;
+import org.agorava.facebook.Facebook;
+import org.agorava.facebook.GraphApi;
+
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Runs the {@link GraphApi} operations on the executor resolved by {@link FacebookExecutors}.
+ */
+@Facebook
+@Named
+public class AsyncGraphApiImpl implements AsyncGraphApi {
+
+    @Inject
+    @Facebook
+    private GraphApi graphApi;
+
+    @Inject
+    @Facebook
+    private Instance<Executor> executors;
+
+    @Override
+    public <T> CompletableFuture<T> fetchObject(final String objectId, final Class<T> type) {
+        return supplyAsync(new Supplier<T>() {
+            @Override
+            public T get() {
+                return graphApi.fetchObject(objectId, type);
+            }
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<T> fetchObject(final String objectId, final Class<T> type,
+                                                final Map<String, String> queryParameters) {
+        return supplyAsync(new Supplier<T>() {
+            @Override
+            public T get() {
+                return graphApi.fetchObject(objectId, type, queryParameters);
+            }
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> fetchConnections(final String objectId, final String connectionName,
+                                                           final Class<T> type, final String... fields) {
+        return supplyAsync(new Supplier<List<T>>() {
+            @Override
+            public List<T> get() {
+                return graphApi.fetchConnections(objectId, connectionName, type, fields);
+            }
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> fetchConnections(final String objectId, final String connectionName,
+                                                           final Class<T> type,
+                                                           final Map<String, String> queryParameters) {
+        return supplyAsync(new Supplier<List<T>>() {
+            @Override
+            public List<T> get() {
+                return graphApi.fetchConnections(objectId, connectionName, type, queryParameters);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> publish(final String objectId, final String connectionName,
+                                             final Map<String, Object> data) {
+        return supplyAsync(new Supplier<String>() {
+            @Override
+            public String get() {
+                return graphApi.publish(objectId, connectionName, data);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> post(final String objectId, final String connectionName,
+                                       final Map<String, String> data) {
+        return runAsync(new Runnable() {
+            @Override
+            public void run() {
+                graphApi.post(objectId, connectionName, data);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(final String objectId) {
+        return runAsync(new Runnable() {
+            @Override
+            public void run() {
+                graphApi.delete(objectId);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(final String objectId, final String connectionName) {
+        return runAsync(new Runnable() {
+            @Override
+            public void run() {
+                graphApi.delete(objectId, connectionName);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, FacebookExecutors.resolve(executors));
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    private CompletableFuture<Void> runAsync(Runnable operation) {
+        try {
+            return CompletableFuture.runAsync(operation, FacebookExecutors.resolve(executors));
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    /**
+     * Reports a missing executor, or one rejecting the operation, through the returned future rather than to the
+     * caller.
+     */
+    private static <T> CompletableFuture<T> failed(RuntimeException error) {
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        result.completeExceptionally(error);
+        return result;
+    }
+}
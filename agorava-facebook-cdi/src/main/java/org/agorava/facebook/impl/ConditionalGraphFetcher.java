@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.agorava.FacebookBaseService;
+import org.agorava.api.exception.AgoravaException;
+import org.agorava.api.rest.Response;
+import org.agorava.api.rest.Verb;
+import org.agorava.facebook.Facebook;
+import org.agorava.facebook.GraphApi;
+import org.agorava.facebook.cdi.GraphApiEndpoint;
+import org.agorava.facebook.impl.GraphBatchImpl.BatchOperation;
+
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Fetches Graph API objects along with their ETag, and revalidates them with an If-None-Match request.
+ * The Graph API takes request headers only for the requests of a batch, so revalidations are sent as a batch of one.
+ * Like the reads of {@link GraphApi}, concurrent identical fetches and revalidations are coalesced by
+ * {@link SingleFlight}.
+ */
+public class ConditionalGraphFetcher extends FacebookBaseService {
+
+    private static final String ETAG = "ETag";
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private ObjectReaderRegistry readers;
+
+    @Inject
+    private SingleFlight singleFlight;
+
+    @Inject
+    @Facebook
+    private Instance<GraphApiEndpoint> endpoints;
+
+    /**
+     * Fetches an object and its ETag.
+     *
+     * @param objectId        the Facebook object's ID
+     * @param type            the Java type to fetch
+     * @param queryParameters query parameters to include in the request
+     * @return the object and its ETag, which is null if Facebook didn't send one
+     */
+    public <T> VersionedObject<T> fetch(String objectId, final Class<T> type, Map<String, String> queryParameters) {
+        final String uri = buildUri(GraphApiEndpoint.baseUrl(endpoints) + objectId, queryParameters);
+        return singleFlight.execute(SingleFlight.key(getTokenScope(), uri, VersionedObject.class, type),
+                new Callable<VersionedObject<T>>() {
+                    @Override
+                    public VersionedObject<T> call() {
+                        return read(uri, type);
+                    }
+                });
+    }
+
+    private <T> VersionedObject<T> read(String uri, Class<T> type) {
+        Response response = sendRequest(Verb.GET, uri);
+        if (!response.isSuccessful()) {
+            throw new AgoravaException("Facebook returned HTTP " + response.getCode() + ": " + response.getBody());
+        }
+        try {
+            InputStream body = response.getStream();
+            try {
+                T value = readers.readerFor(type).readValue(body);
+                return new VersionedObject<T>(value, response.getHeader(ETAG));
+            } finally {
+                body.close();
+            }
+        } catch (IOException e) {
+            throw new AgoravaException("Error deserializing data from Facebook: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fetches an object only if it changed since it was fetched with the given ETag.
+     *
+     * @param objectId        the Facebook object's ID
+     * @param type            the Java type to fetch
+     * @param queryParameters query parameters to include in the request
+     * @param etag            the ETag the object was fetched with
+     * @return the new version of the object, or null if it is not modified
+     */
+    public <T> VersionedObject<T> revalidate(String objectId, final Class<T> type, Map<String, String> queryParameters,
+                                             final String etag) {
+        final String relativeUrl = buildUri(objectId, queryParameters);
+        String key = SingleFlight.key(getTokenScope(), GraphApiEndpoint.baseUrl(endpoints) + relativeUrl
+                + "|If-None-Match=" + etag, VersionedObject.class, type);
+        return singleFlight.execute(key, new Callable<VersionedObject<T>>() {
+            @Override
+            public VersionedObject<T> call() {
+                return sendRevalidation(relativeUrl, type, etag);
+            }
+        });
+    }
+
+    private <T> VersionedObject<T> sendRevalidation(String relativeUrl, Class<T> type, String etag) {
+        GraphBatchImpl batch = new GraphBatchImpl(this, GraphApiEndpoint.baseUrl(endpoints), objectMapper, readers);
+        CompletableFuture<VersionedObject<T>> result = batch.queue(new RevalidateOperation<T>(relativeUrl,
+                readers.readerFor(type), etag));
+        batch.execute();
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class RevalidateOperation<T> extends BatchOperation<VersionedObject<T>> {
+
+        private static final int NOT_MODIFIED = 304;
+
+        private final ObjectReader reader;
+
+        private String newEtag;
+
+        RevalidateOperation(String relativeUrl, ObjectReader reader, String etag) {
+            super(Verb.GET, relativeUrl);
+            this.reader = reader;
+            headers.put("If-None-Match", etag);
+        }
+
+        @Override
+        boolean needsHeaders() {
+            return true;
+        }
+
+        @Override
+        void complete(int code, Map<String, String> responseHeaders, String responseBody) {
+            if (code == NOT_MODIFIED) {
+                result.complete(null);
+                return;
+            }
+            newEtag = responseHeaders.get(ETAG);
+            super.complete(code, responseHeaders, responseBody);
+        }
+
+        @Override
+        VersionedObject<T> parse(String body) throws IOException {
+            T value = reader.readValue(body);
+            return new VersionedObject<T>(value, newEtag);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.api.exception.AgoravaException;
+
+import javax.enterprise.inject.Instance;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolves the {@link Executor} running the background work of the Facebook services, such as page prefetching and
+ * the operations of {@link org.agorava.facebook.AsyncGraphApi}.
+ * <p>
+ * Applications provide it by producing an {@code @Facebook Executor} bean. Since the background work calls the
+ * {@code @Facebook OAuthService} of the calling bean, the executor must propagate the CDI context of the submitting
+ * thread, as the managed executors of the container do. There is no default one: a plain pool would run these calls
+ * outside of any context, so the features needing an executor fail fast when the application doesn't produce one.
+ */
+public final class FacebookExecutors {
+
+    private FacebookExecutors() {
+    }
+
+    /**
+     * @param executors the {@code @Facebook Executor} beans of the application
+     * @return true if the application produces an executor
+     */
+    public static boolean isAvailable(Instance<Executor> executors) {
+        return !executors.isUnsatisfied();
+    }
+
+    /**
+     * @param executors the {@code @Facebook Executor} beans of the application
+     * @return the executor produced by the application
+     * @throws AgoravaException if the application doesn't produce one
+     */
+    public static Executor resolve(Instance<Executor> executors) {
+        if (!isAvailable(executors)) {
+            throw new AgoravaException("No @Facebook Executor is produced by the application. Produce one propagating "
+                    + "the CDI context of the caller, such as a ManagedExecutorService, to run Facebook calls in the "
+                    + "background");
+        }
+        return executors.get();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.facebook.Facebook;
+import org.agorava.facebook.FacebookPublishers;
+import org.agorava.facebook.FeedService;
+import org.agorava.facebook.GraphApi;
+import org.agorava.facebook.PagedConnection;
+import org.agorava.facebook.impl.PagedConnectionImpl.PageFetcher;
+import org.agorava.facebook.impl.PagedPublisher.Source;
+import org.agorava.facebook.jackson.ConnectionPage;
+import org.agorava.facebook.model.LinkPost;
+import org.agorava.facebook.model.NotePost;
+import org.agorava.facebook.model.Post;
+import org.agorava.facebook.model.StatusPost;
+import org.reactivestreams.Publisher;
+
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Publishes the feeds of {@link FeedService} by walking their offsets one page at a time, and the connections of
+ * {@link GraphApi} by following their "paging.next" links.
+ */
+@Facebook
+@Named
+public class FacebookPublishersImpl implements FacebookPublishers {
+
+    @Inject
+    @Facebook
+    private FeedService feedService;
+
+    @Inject
+    @Facebook
+    private GraphApi graphApi;
+
+    @Inject
+    @Facebook
+    private Instance<Executor> executors;
+
+    @Override
+    public Publisher<Post> getFeed(final String ownerId, int pageSize) {
+        return publishFeed(pageSize, new FeedQuery<Post>() {
+            @Override
+            public List<Post> fetch(int offset, int limit) {
+                return feedService.getFeed(ownerId, offset, limit);
+            }
+        });
+    }
+
+    @Override
+    public Publisher<Post> getHomeFeed(int pageSize) {
+        return publishFeed(pageSize, new FeedQuery<Post>() {
+            @Override
+            public List<Post> fetch(int offset, int limit) {
+                return feedService.getHomeFeed(offset, limit);
+            }
+        });
+    }
+
+    @Override
+    public Publisher<Post> getPosts(final String ownerId, int pageSize) {
+        return publishFeed(pageSize, new FeedQuery<Post>() {
+            @Override
+            public List<Post> fetch(int offset, int limit) {
+                return feedService.getPosts(ownerId, offset, limit);
+            }
+        });
+    }
+
+    @Override
+    public Publisher<StatusPost> getStatuses(final String userId, int pageSize) {
+        return publishFeed(pageSize, new FeedQuery<StatusPost>() {
+            @Override
+            public List<StatusPost> fetch(int offset, int limit) {
+                return feedService.getStatuses(userId, offset, limit);
+            }
+        });
+    }
+
+    @Override
+    public Publisher<LinkPost> getLinks(final String ownerId, int pageSize) {
+        return publishFeed(pageSize, new FeedQuery<LinkPost>() {
+            @Override
+            public List<LinkPost> fetch(int offset, int limit) {
+                return feedService.getLinks(ownerId, offset, limit);
+            }
+        });
+    }
+
+    @Override
+    public Publisher<NotePost> getNotes(final String ownerId, int pageSize) {
+        return publishFeed(pageSize, new FeedQuery<NotePost>() {
+            @Override
+            public List<NotePost> fetch(int offset, int limit) {
+                return feedService.getNotes(ownerId, offset, limit);
+            }
+        });
+    }
+
+    @Override
+    public <T> Publisher<T> fetchConnections(final String objectId, final String connectionType, final Class<T> type,
+                                             final Map<String, String> queryParameters, final int prefetchPages) {
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException("prefetchPages must be positive or 0, was " + prefetchPages);
+        }
+        return new PagedPublisher<T>(new Source<T>() {
+            @Override
+            public PagedConnection<T> open() {
+                return graphApi.fetchPagedConnections(objectId, connectionType, type, queryParameters, prefetchPages);
+            }
+        }, FacebookExecutors.resolve(executors));
+    }
+
+    /**
+     * Pages through a feed with its offset as the cursor, until Facebook returns an empty page. A short page doesn't
+     * end the feed since Facebook drops the posts the user isn't allowed to see after applying the limit.
+     */
+    private <T> Publisher<T> publishFeed(final int pageSize, final FeedQuery<T> query) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive, was " + pageSize);
+        }
+        final Executor executor = FacebookExecutors.resolve(executors);
+        final PageFetcher<T> fetcher = new PageFetcher<T>() {
+            @Override
+            public ConnectionPage<T> fetch(String offset) {
+                int start = Integer.parseInt(offset);
+                List<T> data = query.fetch(start, pageSize);
+                return new ConnectionPage<T>(data, data.isEmpty() ? null : String.valueOf(start + pageSize));
+            }
+        };
+        return new PagedPublisher<T>(new Source<T>() {
+            @Override
+            public PagedConnection<T> open() {
+                return new PagedConnectionImpl<T>("0", fetcher, executor, 0);
+            }
+        }, executor);
+    }
+
+    /**
+     * One of the offset/limit reads of {@link FeedService}.
+     */
+    private interface FeedQuery<T> {
+
+        List<T> fetch(int offset, int limit);
+    }
+}
@@ -16,18 +16,23 @@
 
 package org.agorava.facebook.impl;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.agorava.FacebookBaseService;
+import org.agorava.api.exception.AgoravaException;
 import org.agorava.facebook.Facebook;
 import org.agorava.facebook.GraphApi;
 import org.agorava.facebook.UserService;
 import org.agorava.facebook.model.FacebookProfile;
+import org.agorava.facebook.model.FieldSet;
 import org.agorava.facebook.model.ImageType;
 import org.agorava.facebook.model.Reference;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -55,6 +60,22 @@ public class FacebookUserServiceImpl extends FacebookBaseService implements User
         return graphApi.fetchObject(facebookId, FacebookProfile.class);
     }
 
+    @Override
+    public FacebookProfile getUserProfile(String userId, FieldSet<? super FacebookProfile> fields) {
+        return graphApi.fetchObject(userId, FacebookProfile.class, fields);
+    }
+
+    @Override
+    public Map<String, FacebookProfile> getUserProfiles(Collection<String> userIds) {
+        return graphApi.fetchObjects(userIds, FacebookProfile.class);
+    }
+
+    @Override
+    public Map<String, FacebookProfile> getUserProfiles(Collection<String> userIds,
+                                                        FieldSet<? super FacebookProfile> fields) {
+        return graphApi.fetchObjects(userIds, FacebookProfile.class, fields);
+    }
+
     @Override
     public byte[] getUserProfileImage() {
         ;
@@ -79,8 +100,16 @@ public class FacebookUserServiceImpl extends FacebookBaseService implements User
 
     @Override
     public List<String> getUserPermissions() {
-        JsonNode responseNode = getService().get(graphApi.getBaseUrl() + "me/permissions", JsonNode.class);
-        return deserializePermissionsNodeToList(responseNode);
+        try {
+            JsonParser jp = openParser(graphApi.getBaseUrl() + "me/permissions");
+            try {
+                return deserializePermissionsNodeToList(jp.<JsonNode>readValueAsTree());
+            } finally {
+                jp.close();
+            }
+        } catch (IOException e) {
+            throw new AgoravaException("Error deserializing data from Facebook: " + e.getMessage(), e);
+        }
     }
 
     @Override
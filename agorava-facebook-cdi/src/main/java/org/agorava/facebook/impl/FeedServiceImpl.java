@@ -19,29 +19,35 @@
  */
 package org.agorava.facebook.impl;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.agorava.FacebookBaseService;
 import org.agorava.api.exception.AgoravaException;
 import org.agorava.facebook.Facebook;
 import org.agorava.facebook.FeedService;
 import org.agorava.facebook.GraphApi;
+import org.agorava.facebook.cdi.RawPostSink;
+import org.agorava.facebook.jackson.ConnectionReader;
+import org.agorava.facebook.jackson.ConnectionReader.ElementReader;
+import org.agorava.facebook.jackson.PostTypes;
 import org.agorava.facebook.model.FacebookLink;
+import org.agorava.facebook.model.FieldSet;
 import org.agorava.facebook.model.LinkPost;
 import org.agorava.facebook.model.NotePost;
 import org.agorava.facebook.model.Post;
-import org.agorava.facebook.model.Post.PostType;
 import org.agorava.facebook.model.StatusPost;
 
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Antoine Sabot-Durand
@@ -56,7 +62,14 @@ public class FeedServiceImpl extends FacebookBaseService implements FeedService
     private GraphApi graphApi;
 
     @Inject
-    private ObjectMapper objectMapper;
+    private ObjectReaderRegistry readers;
+
+    @Inject
+    private SingleFlight singleFlight;
+
+    @Inject
+    @Facebook
+    private Instance<RawPostSink> sinks;
 
     @Override
     public List<Post> getFeed() {
@@ -75,8 +88,17 @@ public class FeedServiceImpl extends FacebookBaseService implements FeedService
 
     @Override
     public List<Post> getFeed(String ownerId, int offset, int limit) {
-        JsonNode responseNode =  fetchConnectionList(graphApi.getBaseUrl() + ownerId + "/feed", offset, limit);
-        return deserializeList(responseNode, null, Post.class);
+        return fetchPosts(graphApi.getBaseUrl() + ownerId + "/feed", offset, limit, null, null, Post.class);
+    }
+
+    @Override
+    public List<Post> getFeed(String ownerId, int offset, int limit, FieldSet<? super Post> fields) {
+        return fetchPosts(graphApi.getBaseUrl() + ownerId + "/feed", offset, limit, fields, null, Post.class);
+    }
+
+    @Override
+    public List<Post> getFeed(String ownerId, Date since, Date until, int offset, int limit) {
+        return fetchPosts(graphApi.getBaseUrl() + ownerId + "/feed", since, until, offset, limit);
     }
 
     @Override
@@ -86,8 +108,17 @@ public class FeedServiceImpl extends FacebookBaseService implements FeedService
 
     @Override
     public java.util.List<Post> getHomeFeed(int offset, int limit) {
-        JsonNode responseNode = fetchConnectionList(graphApi.getBaseUrl() + "me/home", offset, limit);
-        return deserializeList(responseNode, null, Post.class);
+        return fetchPosts(graphApi.getBaseUrl() + "me/home", offset, limit, null, null, Post.class);
+    }
+
+    @Override
+    public List<Post> getHomeFeed(int offset, int limit, FieldSet<? super Post> fields) {
+        return fetchPosts(graphApi.getBaseUrl() + "me/home", offset, limit, fields, null, Post.class);
+    }
+
+    @Override
+    public List<Post> getHomeFeed(Date since, Date until, int offset, int limit) {
+        return fetchPosts(graphApi.getBaseUrl() + "me/home", since, until, offset, limit);
     }
 
     @Override
@@ -107,8 +138,14 @@ public class FeedServiceImpl extends FacebookBaseService implements FeedService
 
     @Override
     public List<StatusPost> getStatuses(String userId, int offset, int limit) {
-        JsonNode responseNode = fetchConnectionList(graphApi.getBaseUrl() + userId + "/statuses", offset, limit);
-        return deserializeList(responseNode, "status", StatusPost.class);
+        return fetchPosts(graphApi.getBaseUrl() + userId + "/statuses", offset, limit, null, "status",
+                StatusPost.class);
+    }
+
+    @Override
+    public List<StatusPost> getStatuses(String userId, int offset, int limit, FieldSet<? super StatusPost> fields) {
+        return fetchPosts(graphApi.getBaseUrl() + userId + "/statuses", offset, limit, fields, "status",
+                StatusPost.class);
     }
 
     @Override
@@ -128,8 +165,12 @@ public class FeedServiceImpl extends FacebookBaseService implements FeedService
 
     @Override
     public List<LinkPost> getLinks(String ownerId, int offset, int limit) {
-        JsonNode responseNode = fetchConnectionList(graphApi.getBaseUrl() + ownerId + "/links", offset, limit);
-        return deserializeList(responseNode, "link", LinkPost.class);
+        return fetchPosts(graphApi.getBaseUrl() + ownerId + "/links", offset, limit, null, "link", LinkPost.class);
+    }
+
+    @Override
+    public List<LinkPost> getLinks(String ownerId, int offset, int limit, FieldSet<? super LinkPost> fields) {
+        return fetchPosts(graphApi.getBaseUrl() + ownerId + "/links", offset, limit, fields, "link", LinkPost.class);
     }
 
     @Override
@@ -149,8 +190,12 @@ public class FeedServiceImpl extends FacebookBaseService implements FeedService
 
     @Override
     public List<NotePost> getNotes(String ownerId, int offset, int limit) {
-        JsonNode responseNode = fetchConnectionList(graphApi.getBaseUrl() + ownerId + "/notes", offset, limit);
-        return deserializeList(responseNode, "note", NotePost.class);
+        return fetchPosts(graphApi.getBaseUrl() + ownerId + "/notes", offset, limit, null, "note", NotePost.class);
+    }
+
+    @Override
+    public List<NotePost> getNotes(String ownerId, int offset, int limit, FieldSet<? super NotePost> fields) {
+        return fetchPosts(graphApi.getBaseUrl() + ownerId + "/notes", offset, limit, fields, "note", NotePost.class);
     }
 
     @Override
@@ -170,15 +215,27 @@ public class FeedServiceImpl extends FacebookBaseService implements FeedService
 
     @Override
     public List<Post> getPosts(String ownerId, int offset, int limit) {
-        JsonNode responseNode = fetchConnectionList(graphApi.getBaseUrl() + ownerId + "/posts", offset, limit);
-        return deserializeList(responseNode, null, Post.class);
+        return fetchPosts(graphApi.getBaseUrl() + ownerId + "/posts", offset, limit, null, null, Post.class);
+    }
+
+    @Override
+    public List<Post> getPosts(String ownerId, int offset, int limit, FieldSet<? super Post> fields) {
+        return fetchPosts(graphApi.getBaseUrl() + ownerId + "/posts", offset, limit, fields, null, Post.class);
+    }
+
+    @Override
+    public List<Post> getPosts(String ownerId, Date since, Date until, int offset, int limit) {
+        return fetchPosts(graphApi.getBaseUrl() + ownerId + "/posts", since, until, offset, limit);
     }
 
     @Override
     public Post getPost(String entryId) {
-        ObjectNode responseNode = (ObjectNode) getService().get(graphApi.getBaseUrl() + entryId,
-                JsonNode.class);
-        return deserializePost(null, Post.class, responseNode);
+        return fetchPost(graphApi.getBaseUrl() + entryId);
+    }
+
+    @Override
+    public Post getPost(String entryId, FieldSet<? super Post> fields) {
+        return fetchPost(buildUri(graphApi.getBaseUrl() + entryId, "fields", fields.toParameter()));
     }
 
     @Override
@@ -227,8 +284,7 @@ public class FeedServiceImpl extends FacebookBaseService implements FeedService
         params.put("offset", String.valueOf(offset));
         params.put("limit", String.valueOf(limit));
         String uri = buildUri(graphApi.getBaseUrl() + "search", params);
-        JsonNode responseNode = getService().get(uri, JsonNode.class);
-        return deserializeList(responseNode, null, Post.class);
+        return fetchPosts(uri, null, Post.class);
     }
 
     @Override
@@ -243,8 +299,7 @@ public class FeedServiceImpl extends FacebookBaseService implements FeedService
         params.put("offset", String.valueOf(offset));
         params.put("limit", String.valueOf(limit));
         String uri = buildUri(graphApi.getBaseUrl() + "home", params);
-        JsonNode responseNode = getService().get(uri, JsonNode.class);
-        return deserializeList(responseNode, null, Post.class);
+        return fetchPosts(uri, null, Post.class);
     }
 
     @Override
@@ -269,64 +324,101 @@ public class FeedServiceImpl extends FacebookBaseService implements FeedService
         params.put("offset", String.valueOf(offset));
         params.put("limit", String.valueOf(limit));
         String uri = buildUri(graphApi.getBaseUrl() + userId + "feed", params);
-        JsonNode responseNode = getService().get(uri, JsonNode.class);
-        return deserializeList(responseNode, null, Post.class);
+        return fetchPosts(uri, null, Post.class);
     }
 
     // private helpers
 
-    private JsonNode fetchConnectionList(String baseUri, int offset, int limit) {
+    private Post fetchPost(final String uri) {
+        return singleFlight.execute(SingleFlight.key(getTokenScope(), uri, Post.class), new Callable<Post>() {
+            @Override
+            public Post call() {
+                try {
+                    JsonParser jp = openParser(uri);
+                    try {
+                        jp.nextToken();
+                        return readPost(jp, null, Post.class);
+                    } finally {
+                        jp.close();
+                    }
+                } catch (IOException e) {
+                    throw new AgoravaException("Error deserializing data from Facebook: " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    private <T> List<T> fetchPosts(String baseUri, int offset, int limit, FieldSet<?> fields, String postType,
+                                   Class<T> type) {
         Map<String, Object> params = new HashMap();
         params.put("offset", String.valueOf(offset));
         params.put("limit", String.valueOf(limit));
-        String uri = buildUri(baseUri, params);
-        JsonNode responseNode = getService().get(uri, JsonNode.class);
-        return responseNode;
-    }
-
-    private <T> List<T> deserializeList(JsonNode jsonNode, String postType, Class<T> type) {
-        JsonNode dataNode = jsonNode.get("data");
-        List<T> posts = new ArrayList<T>();
-        for (Iterator<JsonNode> iterator = dataNode.iterator(); iterator.hasNext(); ) {
-            posts.add(deserializePost(postType, type, (ObjectNode) iterator.next()));
+        if (fields != null) {
+            params.put("fields", fields.toParameter());
         }
-        return posts;
+        return fetchPosts(buildUri(baseUri, params), postType, type);
     }
 
-    private <T> T deserializePost(String postType, Class<T> type, ObjectNode node) {
-        try {
-            if (postType == null) {
-                postType = determinePostType(node);
-            }
-
-            // Must have separate postType field for polymorphic deserialization. If we key off of the "type" field,
-            // then it will
-            // be null when trying to deserialize the type property.
-            node.put("postType", postType); // used for polymorphic deserialization
-            node.put("type", postType); // used to set Post's type property
-            return objectMapper.reader(type).readValue(node.toString()); // TODO: EXTREMELY HACKY--TEMPORARY UNTIL I FIGURE
-            // OUT HOW JACKSON 2 DOES THIS
-        } catch (IOException shouldntHappen) {
-            throw new AgoravaException("Error deserializing " + postType + " post", shouldntHappen);
+    /**
+     * Fetches the posts of a time window, given to Facebook as the Unix times it expects for "since" and "until".
+     */
+    private List<Post> fetchPosts(String baseUri, Date since, Date until, int offset, int limit) {
+        Map<String, Object> params = new HashMap();
+        params.put("limit", String.valueOf(limit));
+        if (offset > 0) {
+            params.put("offset", String.valueOf(offset));
         }
-    }
-
-    private String determinePostType(ObjectNode node) {
-        if (node.has("type")) {
-            try {
-                String type = node.get("type").textValue();
-                PostType.valueOf(type.toUpperCase());
-                return type;
-            } catch (IllegalArgumentException e) {
-                return "post";
-            }
+        if (since != null) {
+            params.put("since", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(since.getTime())));
         }
-        return "post";
-    }
-    
-	private static final String[] ALL_POST_FIELDS = {
-		"id", "actions", "admin_creator", "application", "caption", "created_time", "description", "from", "icon",
-		"is_hidden", "is_published", "link", "message", "message_tags", "name", "object_id", "picture", "place", 
-		"privacy", "properties", "source", "status_type", "story", "to", "type", "updated_time", "with_tags", "shares"
-	};
+        if (until != null) {
+            params.put("until", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(until.getTime())));
+        }
+        return fetchPosts(buildUri(baseUri, params), null, Post.class);
+    }
+
+    /**
+     * Fetches and binds a page of posts, sharing them with the concurrent identical reads. The page is streamed and
+     * only one post at a time is buffered, so it is the whole read that is coalesced and not only the request.
+     */
+    private <T> List<T> fetchPosts(final String uri, final String postType, final Class<T> type) {
+        List<T> posts = singleFlight.execute(SingleFlight.key(getTokenScope(), uri, List.class, type),
+                new Callable<List<T>>() {
+                    @Override
+                    public List<T> call() {
+                        try {
+                            JsonParser jp = openParser(uri);
+                            try {
+                                return ConnectionReader.readDataList(jp, new ElementReader<T>() {
+                                    @Override
+                                    public T read(JsonParser jp) throws IOException {
+                                        return readPost(jp, postType, type);
+                                    }
+                                });
+                            } finally {
+                                jp.close();
+                            }
+                        } catch (IOException e) {
+                            throw new AgoravaException("Error deserializing data from Facebook: " + e.getMessage(), e);
+                        }
+                    }
+                });
+        return new ArrayList<T>(posts);
+    }
+
+    /**
+     * Binds the post the parser is on. Posts are only read as trees when a {@link RawPostSink} needs their JSON,
+     * otherwise they are streamed so that their nested lists, such as comments and likes, are never materialized
+     * unless bound.
+     */
+    private <T> T readPost(JsonParser jp, String postType, Class<T> type) throws IOException {
+        if (sinks.isUnsatisfied()) {
+            return readers.readerFor(type).readValue(PostTypes.tag(jp, postType));
+        }
+        ObjectNode node = jp.readValueAsTree();
+        PostTypes.tag(node, postType);
+        T post = readers.readerFor(type).readValue(node); // binds straight from the tree, no String round trip
+        sinks.get().accept((Post) post, node);
+        return post;
+    }
 }
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.FacebookBaseService;
+import org.agorava.facebook.Facebook;
+import org.agorava.facebook.FeedChange;
+import org.agorava.facebook.FeedChange.Kind;
+import org.agorava.facebook.FeedService;
+import org.agorava.facebook.FeedSync;
+import org.agorava.facebook.model.Post;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FeedSync} walking the feeds back from their most recent post with "until" until it reaches the watermark
+ * given as "since". Graph API times have a one second resolution, so the IDs of the posts changed in the second of
+ * the watermark are kept to recognize them when they come again.
+ * <p>
+ * A synchronization fetches at most {@link #MAX_PAGES} pages. When more posts are left, the window between the
+ * previous watermark and the oldest post fetched is kept as a backlog, walked by the following synchronizations
+ * before the feed is walked from its most recent post again, so that no post is skipped.
+ */
+@Facebook
+@ApplicationScoped
+public class FeedSyncImpl extends FacebookBaseService implements FeedSync {
+
+    static final int PAGE_SIZE = 100;
+
+    static final int MAX_PAGES = 10;
+
+    private static final int MAX_FEEDS = 100000;
+
+    private static final long NO_WATERMARK = -1;
+
+    @Inject
+    @Facebook
+    private FeedService feedService;
+
+    @Inject
+    @Facebook
+    private Event<FeedChange> changeEvents;
+
+    private final Map<String, FeedState> feeds = Collections.synchronizedMap(
+            new LinkedHashMap<String, FeedState>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, FeedState> eldest) {
+                    return size() > MAX_FEEDS;
+                }
+            });
+
+    @Override
+    public List<FeedChange> sync(Source source, String ownerId) {
+        String key = feedKey(source, ownerId);
+        FeedState state;
+        synchronized (feeds) {
+            state = feeds.get(key);
+            if (state == null) {
+                state = new FeedState();
+                feeds.put(key, state);
+            }
+        }
+        List<FeedChange> changes;
+        synchronized (state) {
+            changes = state.sync(source, ownerId);
+        }
+        for (FeedChange change : changes) {
+            changeEvents.fire(change);
+        }
+        return changes;
+    }
+
+    @Override
+    public Date getWatermark(Source source, String ownerId) {
+        FeedState state = feeds.get(feedKey(source, ownerId));
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return state.watermark == NO_WATERMARK ? null : new Date(TimeUnit.SECONDS.toMillis(state.watermark));
+        }
+    }
+
+    @Override
+    public void reset(Source source, String ownerId) {
+        feeds.remove(feedKey(source, ownerId));
+    }
+
+    private String feedKey(Source source, String ownerId) {
+        return getTokenScope() + "|" + source + "|" + (source == Source.HOME ? "me" : ownerId);
+    }
+
+    private List<Post> fetch(Source source, String ownerId, Date since, Date until, int offset) {
+        switch (source) {
+            case HOME:
+                return feedService.getHomeFeed(since, until, offset, PAGE_SIZE);
+            case POSTS:
+                return feedService.getPosts(ownerId, since, until, offset, PAGE_SIZE);
+            default:
+                return feedService.getFeed(ownerId, since, until, offset, PAGE_SIZE);
+        }
+    }
+
+    /**
+     * @return the time the post was last changed, in seconds, or -1 if Facebook sent none
+     */
+    private static long changeTime(Post post) {
+        Date time = post.getUpdatedTime() != null ? post.getUpdatedTime() : post.getCreatedTime();
+        return time != null ? TimeUnit.MILLISECONDS.toSeconds(time.getTime()) : NO_WATERMARK;
+    }
+
+    /**
+     * @return the IDs of the given posts changed in the given second
+     */
+    private static Set<String> idsChangedAt(Iterable<Post> posts, long time) {
+        Set<String> ids = new HashSet<String>();
+        for (Post post : posts) {
+            if (changeTime(post) == time) {
+                ids.add(post.getId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * The posts fetched by walking a feed back from "until", or from its most recent post, to "since". Each page
+     * moves "until" to the oldest second it holds, whose posts come again at the top of the next page. A page made
+     * only of posts of that second doesn't move it: the next page skips the posts of the second fetched so far with
+     * an offset instead, so that a second holding more than {@link #PAGE_SIZE} posts is walked through.
+     */
+    private final class Walk {
+
+        final Map<String, Post> fetched = new LinkedHashMap<String, Post>();
+
+        /**
+         * The oldest change time fetched, or -1 if none.
+         */
+        long oldest = NO_WATERMARK;
+
+        /**
+         * True if the walk stopped at {@link #MAX_PAGES} with posts left between "since" and {@link #oldest}.
+         */
+        boolean truncated;
+
+        Walk(Source source, String ownerId, Date since, Date until) {
+            int offset = 0;
+            for (int page = 0; page < MAX_PAGES; page++) {
+                List<Post> posts = fetch(source, ownerId, since, until, offset);
+                int fresh = 0;
+                long pageOldest = Long.MAX_VALUE;
+                long pageNewest = NO_WATERMARK;
+                for (Post post : posts) {
+                    if (fetched.put(post.getId(), post) == null) {
+                        fresh++;
+                    }
+                    long time = changeTime(post);
+                    if (time != NO_WATERMARK) {
+                        pageOldest = Math.min(pageOldest, time);
+                    }
+                    pageNewest = time == NO_WATERMARK ? Long.MAX_VALUE : Math.max(pageNewest, time);
+                }
+                if (pageOldest != Long.MAX_VALUE) {
+                    oldest = oldest == NO_WATERMARK ? pageOldest : Math.min(oldest, pageOldest);
+                }
+                // Without a watermark only the most recent page is taken, otherwise stop once the window is exhausted
+                if (since == null || posts.size() < PAGE_SIZE || fresh == 0 || pageOldest == Long.MAX_VALUE) {
+                    return;
+                }
+                Date pageUntil = new Date(TimeUnit.SECONDS.toMillis(pageOldest));
+                if (pageNewest == pageOldest) {
+                    offset = (pageUntil.equals(until) ? offset : 0) + posts.size();
+                } else {
+                    offset = 0;
+                }
+                until = pageUntil;
+            }
+            truncated = true;
+        }
+    }
+
+    /**
+     * The part of a feed left to walk after a synchronization stopped at {@link #MAX_PAGES}: the posts changed from
+     * the previous watermark to the oldest post fetched, less the ones already reported in these two seconds.
+     */
+    private static final class Backlog {
+
+        final long since;
+
+        final Set<String> sinceIds;
+
+        long until;
+
+        Set<String> untilIds;
+
+        Backlog(long since, Set<String> sinceIds, long until, Set<String> untilIds) {
+            this.since = since;
+            this.sinceIds = sinceIds;
+            this.until = until;
+            this.untilIds = untilIds;
+        }
+
+        boolean covers(Post post) {
+            long time = changeTime(post);
+            return time >= since && time <= until && !(time == since && sinceIds.contains(post.getId()))
+                    && !(time == until && untilIds.contains(post.getId()));
+        }
+    }
+
+    /**
+     * The watermark of a feed, the IDs of the posts changed in its second and the backlog left by the last
+     * synchronization, if any.
+     */
+    private final class FeedState {
+
+        private long watermark = NO_WATERMARK;
+
+        private Set<String> boundaryIds = Collections.emptySet();
+
+        private Backlog backlog;
+
+        List<FeedChange> sync(Source source, String ownerId) {
+            if (backlog != null) {
+                return syncBacklog(source, ownerId);
+            }
+            Date since = watermark == NO_WATERMARK ? null : new Date(TimeUnit.SECONDS.toMillis(watermark));
+            long previousWatermark = watermark;
+            Set<String> previousBoundaryIds = boundaryIds;
+            Walk walk = new Walk(source, ownerId, since, null);
+            List<FeedChange> changes = record(source, ownerId, walk.fetched);
+            if (walk.truncated) {
+                // the watermark moved to the most recent post, the posts between the previous one and the oldest
+                // post fetched are reported by the following synchronizations
+                backlog = new Backlog(previousWatermark, previousBoundaryIds, walk.oldest,
+                        idsChangedAt(walk.fetched.values(), walk.oldest));
+            }
+            return changes;
+        }
+
+        /**
+         * Walks the backlog back from its oldest post reported so far, reporting the posts changed in it.
+         */
+        private List<FeedChange> syncBacklog(Source source, String ownerId) {
+            Walk walk = new Walk(source, ownerId, new Date(TimeUnit.SECONDS.toMillis(backlog.since)),
+                    new Date(TimeUnit.SECONDS.toMillis(backlog.until)));
+            List<FeedChange> changes = new ArrayList<FeedChange>();
+            for (Post post : walk.fetched.values()) {
+                if (backlog.covers(post)) {
+                    long created = post.getCreatedTime() != null
+                            ? TimeUnit.MILLISECONDS.toSeconds(post.getCreatedTime().getTime()) : changeTime(post);
+                    Kind kind = created >= backlog.since ? Kind.ADDED : Kind.UPDATED;
+                    changes.add(new FeedChange(source, ownerId, kind, post));
+                }
+            }
+            if (walk.truncated && walk.oldest != NO_WATERMARK) {
+                Set<String> ids = idsChangedAt(walk.fetched.values(), walk.oldest);
+                if (walk.oldest == backlog.until) {
+                    ids.addAll(backlog.untilIds);
+                }
+                backlog.until = walk.oldest;
+                backlog.untilIds = ids;
+            } else {
+                backlog = null;
+            }
+            Collections.reverse(changes);
+            return changes;
+        }
+
+        private List<FeedChange> record(Source source, String ownerId, Map<String, Post> fetched) {
+            List<FeedChange> changes = new ArrayList<FeedChange>();
+            long newWatermark = watermark;
+            for (Post post : fetched.values()) {
+                long time = changeTime(post);
+                if (watermark != NO_WATERMARK && (time < watermark
+                        || (time == watermark && boundaryIds.contains(post.getId())))) {
+                    continue;
+                }
+                long created = post.getCreatedTime() != null
+                        ? TimeUnit.MILLISECONDS.toSeconds(post.getCreatedTime().getTime()) : time;
+                Kind kind = watermark == NO_WATERMARK || created >= watermark ? Kind.ADDED : Kind.UPDATED;
+                changes.add(new FeedChange(source, ownerId, kind, post));
+                newWatermark = Math.max(newWatermark, time);
+            }
+            if (newWatermark != watermark) {
+                watermark = newWatermark;
+                boundaryIds = idsChangedAt(fetched.values(), newWatermark);
+            } else if (!changes.isEmpty()) {
+                Set<String> ids = new HashSet<String>(boundaryIds);
+                for (FeedChange change : changes) {
+                    ids.add(change.getPost().getId());
+                }
+                boundaryIds = ids;
+            }
+            Collections.reverse(changes);
+            return changes;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.agorava.facebook.fql.FqlException;
+import org.agorava.facebook.fql.FqlResult;
+import org.agorava.facebook.fql.FqlResultMapper;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link FqlResult} reused for every row of an FQL result set. Reading a row overwrites the columns of the previous
+ * one: scalar values are kept as the token read along with its number or text, so a row costs no allocation beyond
+ * the Strings of its text values. Nested objects and arrays are kept as trees and mapped through a child row, reused
+ * in the same way.
+ * <p>
+ * The columns are kept in the order of the fields in the row, which is the same for every row of a result set, so the
+ * positions resolved by an {@link org.agorava.facebook.fql.FqlColumn} stay valid from one row to the next.
+ *
+ * @deprecated see https://developers.facebook.com/docs/reference/fql/
+ */
+@Deprecated
+class FqlRow extends FqlResult {
+
+    private static final String MSG_NUMBER = "Field '{0}' is not a number.";
+
+    private static final String MSG_OTH = "Field '{0}' is not a {1}.";
+
+    private static final String MSG_OTH2 = "Field '{0}' is not an {1}.";
+
+    private static final int INITIAL_COLUMNS = 16;
+
+    private String[] names = new String[INITIAL_COLUMNS];
+
+    private JsonToken[] tokens = new JsonToken[INITIAL_COLUMNS];
+
+    private long[] longs = new long[INITIAL_COLUMNS];
+
+    private double[] doubles = new double[INITIAL_COLUMNS];
+
+    private String[] texts = new String[INITIAL_COLUMNS];
+
+    private JsonNode[] trees = new JsonNode[INITIAL_COLUMNS];
+
+    private int size;
+
+    private ObjectCodec codec;
+
+    private FqlRow child;
+
+    /**
+     * Reads the next row, replacing the current one.
+     *
+     * @param jp a parser positioned on the row's opening object, left on its closing one
+     */
+    void read(JsonParser jp) throws IOException {
+        if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(jp, "Expected an FQL result object but got " + jp.getCurrentToken());
+        }
+        codec = jp.getCodec();
+        Arrays.fill(texts, 0, size, null);
+        Arrays.fill(trees, 0, size, null);
+        size = 0;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String name = jp.getCurrentName();
+            JsonToken token = jp.nextToken();
+            int column = addColumn(name, token);
+            switch (token) {
+                case VALUE_NUMBER_INT:
+                    if (jp.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                        tokens[column] = JsonToken.VALUE_STRING;
+                        texts[column] = jp.getText();
+                    } else {
+                        longs[column] = jp.getLongValue();
+                    }
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    doubles[column] = jp.getDoubleValue();
+                    break;
+                case VALUE_STRING:
+                    texts[column] = jp.getText();
+                    break;
+                case START_OBJECT:
+                case START_ARRAY:
+                    trees[column] = jp.readValueAsTree();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public String getString(String fieldName) {
+        return getString(columnOf(fieldName));
+    }
+
+    @Override
+    public String getString(int column) {
+        if (isAbsent(column)) {
+            return null;
+        }
+        switch (tokens[column]) {
+            case VALUE_STRING:
+                return texts[column];
+            case VALUE_NUMBER_INT:
+                return Long.toString(longs[column]);
+            case VALUE_NUMBER_FLOAT:
+                return Double.toString(doubles[column]);
+            case VALUE_TRUE:
+                return "true";
+            case VALUE_FALSE:
+                return "false";
+            case START_OBJECT:
+            case START_ARRAY:
+                return trees[column].toString();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public Integer getInteger(String fieldName) {
+        int column = columnOf(fieldName);
+        return isAbsent(column) ? null : (Integer) getInt(column, 0);
+    }
+
+    @Override
+    public Long getLong(String fieldName) {
+        int column = columnOf(fieldName);
+        return isAbsent(column) ? null : (Long) readLong(column, MSG_NUMBER);
+    }
+
+    @Override
+    public Float getFloat(String fieldName) {
+        int column = columnOf(fieldName);
+        if (column < 0) {
+            return null;
+        }
+        switch (tokens[column]) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+                return (float) longs[column];
+            case VALUE_NUMBER_FLOAT:
+                return (float) doubles[column];
+            case VALUE_STRING:
+                try {
+                    return Float.valueOf(texts[column]);
+                } catch (NumberFormatException e) {
+                    throw new FqlException(MessageFormat.format(MSG_NUMBER, fieldName), e);
+                }
+            default:
+                throw new FqlException(MessageFormat.format(MSG_NUMBER, fieldName));
+        }
+    }
+
+    @Override
+    public Boolean getBoolean(String fieldName) {
+        int column = columnOf(fieldName);
+        if (column < 0) {
+            return null;
+        }
+        switch (tokens[column]) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_STRING:
+                return Boolean.valueOf(texts[column]);
+            default:
+                return Boolean.FALSE;
+        }
+    }
+
+    @Override
+    public Date getTime(String fieldName) {
+        int column = columnOf(fieldName);
+        return isAbsent(column) ? null : new Date(readLong(column, MSG_OTH) * 1000);
+    }
+
+    @Override
+    public Object getObject(String fieldName) {
+        int column = columnOf(fieldName);
+        if (column < 0) {
+            return null;
+        }
+        switch (tokens[column]) {
+            case VALUE_STRING:
+                return texts[column];
+            case VALUE_NUMBER_INT:
+                return longs[column] >= Integer.MIN_VALUE && longs[column] <= Integer.MAX_VALUE
+                        ? (Object) (int) longs[column] : (Object) longs[column];
+            case VALUE_NUMBER_FLOAT:
+                return doubles[column];
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case START_OBJECT:
+            case START_ARRAY:
+                try {
+                    return codec.treeToValue(trees[column], Object.class);
+                } catch (JsonProcessingException e) {
+                    throw new FqlException("Error reading field '" + fieldName + "': " + e.getMessage(), e);
+                }
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public <T> T getObject(String fieldName, FqlResultMapper<T> mapper) {
+        int column = columnOf(fieldName);
+        if (column < 0) {
+            return null;
+        }
+        if (tokens[column] != JsonToken.START_OBJECT) {
+            throw new FqlException(MessageFormat.format(MSG_OTH2, fieldName, "object"));
+        }
+        return mapChild(fieldName, trees[column], mapper);
+    }
+
+    @Override
+    public <T> List<T> getList(String fieldName, FqlResultMapper<T> mapper) {
+        int column = columnOf(fieldName);
+        if (column < 0) {
+            return null;
+        }
+        if (tokens[column] != JsonToken.START_ARRAY) {
+            throw new FqlException(MessageFormat.format(MSG_OTH, fieldName, "list"));
+        }
+        JsonNode items = trees[column];
+        List<T> response = new ArrayList<T>(items.size());
+        for (JsonNode item : items) {
+            if (!item.isObject()) {
+                throw new FqlException(MessageFormat.format(MSG_OTH, fieldName, "list"));
+            }
+            response.add(mapChild(fieldName, item, mapper));
+        }
+        return response;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return size;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column < 0 || column >= size) {
+            throw new IndexOutOfBoundsException("No column " + column + " in a row of " + size);
+        }
+        return names[column];
+    }
+
+    @Override
+    public int getColumn(String fieldName) {
+        return columnOf(fieldName);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return isAbsent(column);
+    }
+
+    @Override
+    public int getInt(int column, int defaultValue) {
+        if (isAbsent(column)) {
+            return defaultValue;
+        }
+        long value = readLong(column, MSG_NUMBER);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new FqlException(MessageFormat.format(MSG_NUMBER, names[column]));
+        }
+        return (int) value;
+    }
+
+    @Override
+    public long getLong(int column, long defaultValue) {
+        return isAbsent(column) ? defaultValue : readLong(column, MSG_NUMBER);
+    }
+
+    @Override
+    public double getDouble(int column, double defaultValue) {
+        if (isAbsent(column)) {
+            return defaultValue;
+        }
+        switch (tokens[column]) {
+            case VALUE_NUMBER_INT:
+                return longs[column];
+            case VALUE_NUMBER_FLOAT:
+                return doubles[column];
+            case VALUE_STRING:
+                try {
+                    return Double.parseDouble(texts[column]);
+                } catch (NumberFormatException e) {
+                    throw new FqlException(MessageFormat.format(MSG_NUMBER, names[column]), e);
+                }
+            default:
+                throw new FqlException(MessageFormat.format(MSG_NUMBER, names[column]));
+        }
+    }
+
+    @Override
+    public long getEpochSeconds(int column, long defaultValue) {
+        return isAbsent(column) ? defaultValue : readLong(column, MSG_OTH);
+    }
+
+    private <T> T mapChild(String fieldName, JsonNode value, FqlResultMapper<T> mapper) {
+        if (child == null) {
+            child = new FqlRow();
+        }
+        try {
+            JsonParser jp = value.traverse(codec);
+            try {
+                jp.nextToken();
+                child.read(jp);
+            } finally {
+                jp.close();
+            }
+        } catch (IOException e) {
+            throw new FqlException("Error reading field '" + fieldName + "': " + e.getMessage(), e);
+        }
+        return mapper.mapObject(child);
+    }
+
+    private long readLong(int column, String message) {
+        switch (tokens[column]) {
+            case VALUE_NUMBER_INT:
+                return longs[column];
+            case VALUE_STRING:
+                try {
+                    return Long.parseLong(texts[column]);
+                } catch (NumberFormatException e) {
+                    throw new FqlException(MessageFormat.format(message, names[column], "time"), e);
+                }
+            default:
+                throw new FqlException(MessageFormat.format(message, names[column], "time"));
+        }
+    }
+
+    private boolean isAbsent(int column) {
+        return column < 0 || column >= size || tokens[column] == JsonToken.VALUE_NULL;
+    }
+
+    private int columnOf(String fieldName) {
+        for (int column = 0; column < size; column++) {
+            if (names[column].equals(fieldName)) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    private int addColumn(String name, JsonToken token) {
+        if (size == names.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+            longs = Arrays.copyOf(longs, capacity);
+            doubles = Arrays.copyOf(doubles, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            trees = Arrays.copyOf(trees, capacity);
+        }
+        names[size] = name;
+        tokens[size] = token;
+        return size++;
+    }
+}
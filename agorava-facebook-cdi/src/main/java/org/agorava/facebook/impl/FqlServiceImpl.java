@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.agorava.FacebookBaseService;
+import org.agorava.facebook.Facebook;
+import org.agorava.facebook.GraphApi;
+import org.agorava.facebook.fql.FqlException;
+import org.agorava.facebook.fql.FqlResultMapper;
+import org.agorava.facebook.fql.FqlService;
+import org.agorava.facebook.jackson.ConnectionReader;
+import org.agorava.facebook.jackson.ConnectionReader.ElementReader;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sends FQL queries to the "fql" endpoint of the Graph API. The rows of the response are read from its stream one at
+ * a time into a single {@link FqlRow} given to the mapper, so only the mapped objects are kept.
+ * <p>
+ * The result sets of a multiquery are copied from the stream into token buffers, then mapped in parallel by
+ * fork-join tasks, the first one on the calling thread.
+ *
+ * @deprecated see https://developers.facebook.com/docs/reference/fql/
+ */
+@Facebook
+@Named
+@Deprecated
+public class FqlServiceImpl extends FacebookBaseService implements FqlService {
+
+    private static final String NAME = "name";
+
+    private static final String RESULT_SET = "fql_result_set";
+
+    @Inject
+    @Facebook
+    private GraphApi graphApi;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Override
+    public <T> List<T> query(String fql, FqlResultMapper<T> mapper) {
+        String uri = buildUri(graphApi.getBaseUrl() + "fql", "q", fql);
+        try {
+            JsonParser jp = openParser(uri);
+            try {
+                return ConnectionReader.readDataList(jp, rowReader(new FqlRow(), mapper));
+            } finally {
+                jp.close();
+            }
+        } catch (IOException e) {
+            throw new FqlException("Error deserializing FQL results from Facebook: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, List<?>> multiquery(Map<String, String> namedQueries, Map<String, FqlResultMapper<?>> mappers) {
+        for (String name : namedQueries.keySet()) {
+            if (!mappers.containsKey(name)) {
+                throw new IllegalArgumentException("No FqlResultMapper for the query named " + name);
+            }
+        }
+        Map<String, TokenBuffer> resultSets;
+        try {
+            String uri = buildUri(graphApi.getBaseUrl() + "fql", "q", objectMapper.writeValueAsString(namedQueries));
+            JsonParser jp = openParser(uri);
+            try {
+                resultSets = readResultSets(jp, namedQueries);
+            } finally {
+                jp.close();
+            }
+        } catch (IOException e) {
+            throw new FqlException("Error deserializing FQL results from Facebook: " + e.getMessage(), e);
+        }
+        List<ResultSetTask<?>> tasks = new ArrayList<ResultSetTask<?>>(resultSets.size());
+        for (Map.Entry<String, TokenBuffer> resultSet : resultSets.entrySet()) {
+            tasks.add(newTask(resultSet.getKey(), resultSet.getValue(), mappers.get(resultSet.getKey())));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        Map<String, List<?>> results = new LinkedHashMap<String, List<?>>();
+        for (String name : namedQueries.keySet()) {
+            results.put(name, Collections.emptyList());
+        }
+        for (ResultSetTask<?> task : tasks) {
+            results.put(task.name, task.join());
+        }
+        return results;
+    }
+
+    /**
+     * Copies the "fql_result_set" of each query out of a multiquery response, whose "data" array holds one object per
+     * query with its name and its result set.
+     */
+    private static Map<String, TokenBuffer> readResultSets(JsonParser jp, Map<String, String> namedQueries)
+            throws IOException {
+        final Map<String, TokenBuffer> resultSets = new HashMap<String, TokenBuffer>();
+        ConnectionReader.readDataList(jp, new ElementReader<Void>() {
+            @Override
+            public Void read(JsonParser jp) throws IOException {
+                if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+                    throw JsonMappingException.from(jp, "Expected an FQL result set object but got "
+                            + jp.getCurrentToken());
+                }
+                String name = null;
+                TokenBuffer rows = null;
+                while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = jp.getCurrentName();
+                    JsonToken token = jp.nextToken();
+                    if (NAME.equals(fieldName) && token == JsonToken.VALUE_STRING) {
+                        name = jp.getText();
+                    } else if (RESULT_SET.equals(fieldName) && token == JsonToken.START_ARRAY) {
+                        rows = new TokenBuffer(jp);
+                        rows.copyCurrentStructure(jp);
+                    } else {
+                        jp.skipChildren();
+                    }
+                }
+                if (name != null && rows != null) {
+                    resultSets.put(name, rows);
+                }
+                return null;
+            }
+        });
+        resultSets.keySet().retainAll(namedQueries.keySet());
+        return resultSets;
+    }
+
+    private static <T> ResultSetTask<T> newTask(String name, TokenBuffer rows, FqlResultMapper<T> mapper) {
+        return new ResultSetTask<T>(name, rows, mapper);
+    }
+
+    private static <T> ElementReader<T> rowReader(final FqlRow row, final FqlResultMapper<T> mapper) {
+        return new ElementReader<T>() {
+            @Override
+            public T read(JsonParser jp) throws IOException {
+                row.read(jp);
+                return mapper.mapObject(row);
+            }
+        };
+    }
+
+    /**
+     * Maps the buffered rows of one result set.
+     */
+    private static class ResultSetTask<T> extends RecursiveTask<List<T>> {
+
+        private final String name;
+
+        private final TokenBuffer rows;
+
+        private final FqlResultMapper<T> mapper;
+
+        ResultSetTask(String name, TokenBuffer rows, FqlResultMapper<T> mapper) {
+            this.name = name;
+            this.rows = rows;
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected List<T> compute() {
+            ElementReader<T> reader = rowReader(new FqlRow(), mapper);
+            List<T> results = new ArrayList<T>();
+            try {
+                JsonParser jp = rows.asParser();
+                try {
+                    jp.nextToken();
+                    while (jp.nextToken() != JsonToken.END_ARRAY) {
+                        results.add(reader.read(jp));
+                    }
+                } finally {
+                    jp.close();
+                }
+            } catch (IOException e) {
+                throw new FqlException("Error reading the results of the FQL query named " + name + ": "
+                        + e.getMessage(), e);
+            }
+            return results;
+        }
+    }
+}
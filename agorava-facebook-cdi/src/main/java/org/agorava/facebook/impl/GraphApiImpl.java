@@ -19,25 +19,37 @@
  */
 package org.agorava.facebook.impl;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.type.CollectionType;
-import com.fasterxml.jackson.databind.type.TypeFactory;
 
 import org.agorava.FacebookBaseService;
 import org.agorava.api.exception.AgoravaException;
 import org.agorava.api.service.StringUtils;
 import org.agorava.facebook.Facebook;
 import org.agorava.facebook.GraphApi;
+import org.agorava.facebook.GraphBatch;
+import org.agorava.facebook.PagedConnection;
+import org.agorava.facebook.cdi.GraphApiEndpoint;
+import org.agorava.facebook.impl.PagedConnectionImpl.PageFetcher;
+import org.agorava.facebook.jackson.ConnectionPage;
+import org.agorava.facebook.jackson.ConnectionReader;
+import org.agorava.facebook.model.FieldSet;
 import org.agorava.facebook.model.ImageType;
 
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 /**
  * @author Antoine Sabot-Durand
@@ -50,40 +62,124 @@ public class GraphApiImpl extends FacebookBaseService implements GraphApi {
     @Inject
     private ObjectMapper objectMapper;
 
+    @Inject
+    private ObjectReaderRegistry readers;
+
+    @Inject
+    @Facebook
+    private Instance<Executor> executors;
+
+    @Inject
+    private SingleFlight singleFlight;
+
+    @Inject
+    @Facebook
+    private Instance<GraphApiEndpoint> endpoints;
+
 	@Override
 	public String getBaseUrl() {
-		return GRAPH_API_URL;
+		return GraphApiEndpoint.baseUrl(endpoints);
 	}
     
     @Override
     public <T> T fetchObject(String objectId, Class<T> type) {
         String uri = getBaseUrl() + objectId;
-        return getService().get(uri, type);
+        return getObject(uri, type);
     }
 
     @Override
     public <T> T fetchObject(String objectId, Class<T> type, Map<String, String> queryParameters) {
         String uri = buildUri(getBaseUrl() + objectId, queryParameters);
-        return getService().get(uri, type);
+        return getObject(uri, type);
     }
 
     @Override
-    public <T> List<T> fetchConnections(String objectId, String connectionType, Class<T> type, String... fields) {
-        Map<String, String> queryParameters = new HashMap();
-        if (fields.length > 0) {
-            String joinedFields = StringUtils.join(fields, ',');
-            queryParameters.put("fields", joinedFields);
+    public <T> T fetchObject(String objectId, Class<T> type, FieldSet<? super T> fields) {
+        return fetchObject(objectId, type, fieldsParameters(fields));
+    }
+
+    @Override
+    public <T> Map<String, T> fetchObjects(Collection<String> objectIds, Class<T> type, String... fields) {
+        return fetchObjects(objectIds, type, fieldsParameters(fields));
+    }
+
+    @Override
+    public <T> Map<String, T> fetchObjects(Collection<String> objectIds, Class<T> type, FieldSet<? super T> fields) {
+        return fetchObjects(objectIds, type, fieldsParameters(fields));
+    }
+
+    private <T> Map<String, T> fetchObjects(Collection<String> objectIds, Class<T> type,
+                                            Map<String, String> fieldsParameters) {
+        List<String> ids = new ArrayList<String>(new LinkedHashSet<String>(objectIds));
+        Map<String, T> objects = new LinkedHashMap<String, T>();
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_REQUEST) {
+            List<String> chunk = ids.subList(start, Math.min(start + MAX_IDS_PER_REQUEST, ids.size()));
+            Map<String, String> queryParameters = new HashMap<String, String>(fieldsParameters);
+            queryParameters.put("ids", StringUtils.join(chunk.toArray(new String[chunk.size()]), ','));
+            String uri = buildUri(getBaseUrl(), queryParameters);
+            try {
+                JsonParser jp = openParser(uri);
+                try {
+                    ConnectionReader.readObjectMap(jp, readers.readerFor(type), objects);
+                } finally {
+                    jp.close();
+                }
+            } catch (IOException e) {
+                throw new AgoravaException("Error deserializing data from Facebook: " + e.getMessage(), e);
+            }
         }
-        return fetchConnections(objectId, connectionType, type, queryParameters);
+        return objects;
+    }
+
+    @Override
+    public <T> List<T> fetchConnections(String objectId, String connectionType, Class<T> type, String... fields) {
+        return fetchConnections(objectId, connectionType, type, fieldsParameters(fields));
     }
 
     @Override
     public <T> List<T> fetchConnections(String objectId, String connectionType, Class<T> type,
+                                        FieldSet<? super T> fields) {
+        return fetchConnections(objectId, connectionType, type, fieldsParameters(fields));
+    }
+
+    @Override
+    public <T> List<T> fetchConnections(String objectId, String connectionType, final Class<T> type,
                                         Map<String, String> queryParameters) {
-        String connectionPath = connectionType != null && connectionType.length() > 0 ? "/" + connectionType : "";
-        String uri = buildUri(getBaseUrl() + objectId + connectionPath, queryParameters);
-        JsonNode dataNode = getService().get(uri, JsonNode.class);
-        return deserializeDataList(dataNode.get("data"), type);
+        final String uri = buildConnectionUri(objectId, connectionType, queryParameters);
+        List<T> data = singleFlight.execute(SingleFlight.key(getTokenScope(), uri, List.class, type),
+                new Callable<List<T>>() {
+                    @Override
+                    public List<T> call() {
+                        return fetchPage(uri, type).getData();
+                    }
+                });
+        return new ArrayList<T>(data);
+    }
+
+    @Override
+    public <T> PagedConnection<T> fetchPagedConnections(String objectId, String connectionType, Class<T> type,
+                                                        String... fields) {
+        int prefetchPages = FacebookExecutors.isAvailable(executors) ? 1 : 0;
+        return fetchPagedConnections(objectId, connectionType, type, fieldsParameters(fields), prefetchPages);
+    }
+
+    @Override
+    public <T> PagedConnection<T> fetchPagedConnections(String objectId, String connectionType, final Class<T> type,
+                                                        Map<String, String> queryParameters, int prefetchPages) {
+        String uri = buildConnectionUri(objectId, connectionType, queryParameters);
+        PageFetcher<T> fetcher = new PageFetcher<T>() {
+            @Override
+            public ConnectionPage<T> fetch(String pageUri) {
+                return fetchPage(pageUri, type);
+            }
+        };
+        Executor executor = prefetchPages > 0 ? FacebookExecutors.resolve(executors) : null;
+        return new PagedConnectionImpl<T>(uri, fetcher, executor, prefetchPages);
+    }
+
+    @Override
+    public GraphBatch batch() {
+        return new GraphBatchImpl(this, getBaseUrl(), objectMapper, readers);
     }
 
     @Override
@@ -104,6 +200,7 @@ public class GraphApiImpl extends FacebookBaseService implements GraphApi {
     @SuppressWarnings("unchecked")
     public String publish(String objectId, String connectionType, Map<String, Object> data) {
         String uri = getBaseUrl() + objectId + "/" + connectionType;
+        acquireCall();
         Map<String, Object> response = getService().post(uri, data, Map.class);
         return (String) response.get("id");
     }
@@ -111,6 +208,7 @@ public class GraphApiImpl extends FacebookBaseService implements GraphApi {
     @Override
     public void post(String objectId, String connectionType, Map<String, String> data) {
         String uri = getBaseUrl() + objectId + "/" + connectionType;
+        acquireCall();
         getService().post(uri, data, String.class);
     }
 
@@ -119,6 +217,7 @@ public class GraphApiImpl extends FacebookBaseService implements GraphApi {
         Map<String, String> deleteRequest = new HashMap();
         deleteRequest.put("method", "delete");
         String uri = getBaseUrl() + objectId;
+        acquireCall();
         getService().post(uri, deleteRequest, String.class);
     }
 
@@ -127,16 +226,75 @@ public class GraphApiImpl extends FacebookBaseService implements GraphApi {
         Map<String, String> deleteRequest = new HashMap();
         deleteRequest.put("method", "delete");
         String uri = getBaseUrl() + objectId + "/" + connectionType;
+        acquireCall();
         getService().post(uri, deleteRequest, String.class);
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> List<T> deserializeDataList(JsonNode jsonNode, final Class<T> elementType) {
+    static Map<String, String> fieldsParameters(String... fields) {
+        Map<String, String> queryParameters = new HashMap();
+        if (fields.length > 0) {
+            String joinedFields = StringUtils.join(fields, ',');
+            queryParameters.put("fields", joinedFields);
+        }
+        return queryParameters;
+    }
+
+    private <T> T getObject(final String uri, final Class<T> type) {
+        return singleFlight.execute(SingleFlight.key(getTokenScope(), uri, type), new Callable<T>() {
+            @Override
+            public T call() {
+                try {
+                    JsonParser jp = openParser(uri);
+                    try {
+                        return readers.readerFor(type).readValue(jp);
+                    } finally {
+                        jp.close();
+                    }
+                } catch (IOException e) {
+                    throw new AgoravaException("Error deserializing data from Facebook: " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    static Map<String, String> fieldsParameters(FieldSet<?> fields) {
+        Map<String, String> queryParameters = new HashMap<String, String>();
+        queryParameters.put("fields", fields.toParameter());
+        return queryParameters;
+    }
+
+    private String buildConnectionUri(String objectId, String connectionType, Map<String, String> queryParameters) {
+        String connectionPath = connectionType != null && connectionType.length() > 0 ? "/" + connectionType : "";
+        return buildUri(getBaseUrl() + objectId + connectionPath, queryParameters);
+    }
+
+    private <T> ConnectionPage<T> fetchPage(String uri, Class<T> elementType) {
         try {
-            CollectionType listType = TypeFactory.defaultInstance().constructCollectionType(List.class, elementType);
-            return (List<T>) objectMapper.readValue(jsonNode.textValue(), listType);
+            JsonParser jp = openParser(uri);
+            try {
+                ConnectionPage<T> page = ConnectionReader.readPage(jp, readers.readerFor(elementType));
+                return page.hasNext() ? new ConnectionPage<T>(page.getData(), withoutAccessToken(page.getNext())) : page;
+            } finally {
+                jp.close();
+            }
         } catch (IOException e) {
             throw new AgoravaException("Error deserializing data from Facebook: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * The "paging.next" links returned by Facebook carry the access token of the request, which is added again when the
+     * request for the next page is signed.
+     */
+    private static String withoutAccessToken(String uri) {
+        int start = uri.indexOf("access_token=");
+        if (start <= 0 || (uri.charAt(start - 1) != '?' && uri.charAt(start - 1) != '&')) {
+            return uri;
+        }
+        int end = uri.indexOf('&', start);
+        if (end < 0) {
+            return uri.substring(0, start - 1);
+        }
+        return uri.substring(0, start) + uri.substring(end + 1);
+    }
 }
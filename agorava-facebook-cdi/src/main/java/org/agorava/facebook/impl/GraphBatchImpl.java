@@ -0,0 +1,327 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.agorava.FacebookBaseService;
+import org.agorava.api.exception.AgoravaException;
+import org.agorava.api.rest.Response;
+import org.agorava.api.rest.Verb;
+import org.agorava.api.service.OAuthEncoder;
+import org.agorava.facebook.GraphBatch;
+import org.agorava.facebook.jackson.ConnectionReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link GraphBatch} sending its operations through the Graph API "batch" parameter of a POST to the API root.
+ */
+class GraphBatchImpl implements GraphBatch {
+
+    private final FacebookBaseService service;
+
+    private final String baseUrl;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectReaderRegistry readers;
+
+    private final List<BatchOperation<?>> operations = new ArrayList<BatchOperation<?>>();
+
+    GraphBatchImpl(FacebookBaseService service, String baseUrl, ObjectMapper objectMapper,
+                   ObjectReaderRegistry readers) {
+        this.service = service;
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+        this.readers = readers;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> fetchObject(String objectId, Class<T> type) {
+        return fetchObject(objectId, type, Collections.<String, String>emptyMap());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> fetchObject(String objectId, final Class<T> type,
+                                                Map<String, String> queryParameters) {
+        return queue(new BatchOperation<T>(Verb.GET, service.buildUri(objectId, queryParameters)) {
+            @Override
+            T parse(String body) throws IOException {
+                return readers.readerFor(type).readValue(body);
+            }
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> fetchConnections(String objectId, String connectionName, Class<T> type,
+                                                           String... fields) {
+        return fetchConnections(objectId, connectionName, type, GraphApiImpl.fieldsParameters(fields));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> fetchConnections(String objectId, String connectionName, final Class<T> type,
+                                                           Map<String, String> queryParameters) {
+        String connectionPath = connectionName != null && connectionName.length() > 0 ? "/" + connectionName : "";
+        return queue(new BatchOperation<List<T>>(Verb.GET, service.buildUri(objectId + connectionPath,
+                queryParameters)) {
+            @Override
+            List<T> parse(String body) throws IOException {
+                JsonParser jp = objectMapper.getFactory().createParser(body);
+                try {
+                    return ConnectionReader.readDataList(jp, readers.readerFor(type));
+                } finally {
+                    jp.close();
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> publish(String objectId, String connectionName, Map<String, Object> data) {
+        BatchOperation<String> operation = new BatchOperation<String>(Verb.POST, objectId + "/" + connectionName) {
+            @Override
+            String parse(String body) throws IOException {
+                JsonNode id = objectMapper.readTree(body).get("id");
+                return id != null ? id.asText() : null;
+            }
+        };
+        operation.body = encodeForm(data);
+        return queue(operation);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String objectId) {
+        return queue(new DeleteOperation(objectId));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String objectId, String connectionName) {
+        return queue(new DeleteOperation(objectId + "/" + connectionName));
+    }
+
+    @Override
+    public int size() {
+        return operations.size();
+    }
+
+    @Override
+    public void execute() {
+        List<BatchOperation<?>> queued = new ArrayList<BatchOperation<?>>(operations);
+        operations.clear();
+        for (int start = 0; start < queued.size(); start += MAX_REQUESTS) {
+            send(queued.subList(start, Math.min(start + MAX_REQUESTS, queued.size())));
+        }
+    }
+
+    <T> CompletableFuture<T> queue(BatchOperation<T> operation) {
+        operations.add(operation);
+        return operation.result;
+    }
+
+    private void send(List<BatchOperation<?>> chunk) {
+        try {
+            Map<String, Object> parameters = new HashMap<String, Object>();
+            parameters.put("batch", objectMapper.writeValueAsString(toJson(chunk)));
+            parameters.put("include_headers", String.valueOf(includeHeaders(chunk)));
+            Response response = service.sendRequest(Verb.POST, baseUrl, parameters, chunk.size());
+            if (!response.isSuccessful()) {
+                throw new AgoravaException("Facebook returned HTTP " + response.getCode() + " for a batch request: "
+                        + response.getBody());
+            }
+            JsonParser jp = objectMapper.getFactory().createParser(response.getStream());
+            try {
+                readResponses(jp, chunk);
+            } finally {
+                jp.close();
+            }
+        } catch (IOException e) {
+            failAll(chunk, new AgoravaException("Error deserializing batch response from Facebook: " + e.getMessage(), e));
+        } catch (RuntimeException e) {
+            failAll(chunk, e);
+        }
+    }
+
+    private ArrayNode toJson(List<BatchOperation<?>> chunk) {
+        ArrayNode requests = objectMapper.createArrayNode();
+        for (BatchOperation<?> operation : chunk) {
+            ObjectNode request = requests.addObject();
+            request.put("method", operation.method.name());
+            request.put("relative_url", operation.relativeUrl);
+            if (operation.body != null) {
+                request.put("body", operation.body);
+            }
+            if (!operation.headers.isEmpty()) {
+                ArrayNode headers = request.putArray("headers");
+                for (Map.Entry<String, String> header : operation.headers.entrySet()) {
+                    headers.addObject().put("name", header.getKey()).put("value", header.getValue());
+                }
+            }
+        }
+        return requests;
+    }
+
+    private static boolean includeHeaders(List<BatchOperation<?>> chunk) {
+        for (BatchOperation<?> operation : chunk) {
+            if (operation.needsHeaders()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void readResponses(JsonParser jp, List<BatchOperation<?>> chunk) throws IOException {
+        if (jp.nextToken() != JsonToken.START_ARRAY) {
+            throw new AgoravaException("Expected an array of responses to a batch request but got " + jp.getCurrentToken());
+        }
+        int index = 0;
+        while (jp.nextToken() != JsonToken.END_ARRAY && index < chunk.size()) {
+            BatchOperation<?> operation = chunk.get(index++);
+            if (jp.getCurrentToken() == JsonToken.VALUE_NULL) {
+                operation.result.completeExceptionally(new AgoravaException("Facebook didn't process batched request "
+                        + operation));
+            } else {
+                readResponse(jp, operation);
+            }
+        }
+        for (BatchOperation<?> operation : chunk.subList(index, chunk.size())) {
+            operation.result.completeExceptionally(new AgoravaException("No response for batched request " + operation));
+        }
+    }
+
+    private static void readResponse(JsonParser jp, BatchOperation<?> operation) throws IOException {
+        int code = 0;
+        String body = null;
+        Map<String, String> headers = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jp.getCurrentName();
+            JsonToken token = jp.nextToken();
+            if ("code".equals(fieldName)) {
+                code = jp.getIntValue();
+            } else if ("body".equals(fieldName) && token == JsonToken.VALUE_STRING) {
+                body = jp.getText();
+            } else if ("headers".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                while (jp.nextToken() == JsonToken.START_OBJECT) {
+                    JsonNode header = jp.readValueAsTree();
+                    headers.put(header.path("name").asText(), header.path("value").asText());
+                }
+            } else {
+                jp.skipChildren();
+            }
+        }
+        operation.complete(code, headers, body);
+    }
+
+    private static void failAll(List<BatchOperation<?>> chunk, RuntimeException error) {
+        for (BatchOperation<?> operation : chunk) {
+            operation.result.completeExceptionally(error);
+        }
+    }
+
+    private static String encodeForm(Map<String, ?> data) {
+        StringBuilder form = new StringBuilder();
+        for (Map.Entry<String, ?> entry : data.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            if (form.length() > 0) {
+                form.append('&');
+            }
+            form.append(OAuthEncoder.encode(entry.getKey())).append('=')
+                    .append(OAuthEncoder.encode(String.valueOf(entry.getValue())));
+        }
+        return form.toString();
+    }
+
+    /**
+     * One request of a batch and the future of its result.
+     */
+    abstract static class BatchOperation<T> {
+
+        final Verb method;
+
+        final String relativeUrl;
+
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+
+        String body;
+
+        BatchOperation(Verb method, String relativeUrl) {
+            this.method = method;
+            this.relativeUrl = relativeUrl;
+        }
+
+        /**
+         * Binds the body of a successful response.
+         */
+        abstract T parse(String body) throws IOException;
+
+        /**
+         * @return true if this operation needs the headers of its response
+         */
+        boolean needsHeaders() {
+            return false;
+        }
+
+        void complete(int code, Map<String, String> responseHeaders, String responseBody) {
+            if (code < 200 || code >= 300) {
+                result.completeExceptionally(new AgoravaException("Facebook returned HTTP " + code + " for batched request "
+                        + this + ": " + responseBody));
+                return;
+            }
+            try {
+                result.complete(parse(responseBody));
+            } catch (IOException e) {
+                result.completeExceptionally(new AgoravaException("Error deserializing data from Facebook: "
+                        + e.getMessage(), e));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + relativeUrl;
+        }
+    }
+
+    private static class DeleteOperation extends BatchOperation<Void> {
+
+        DeleteOperation(String relativeUrl) {
+            super(Verb.DELETE, relativeUrl);
+        }
+
+        @Override
+        Void parse(String body) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.agorava.facebook.Facebook;
+import org.agorava.facebook.cdi.NestedListBinding;
+import org.agorava.facebook.jackson.FacebookModule;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link ObjectReader}s and {@link JavaType}s used to bind Graph API responses, shared by all the services.
+ * The readers of the model types of {@link FacebookModule}, and of lists of them, are built when the registry is
+ * initialized, which also resolves their root deserializers; other types get theirs on first use. ObjectReaders are
+ * immutable and thread safe, so that a single instance per type serves every call.
+ * <p>
+ * With the {@link NestedListBinding#LAZY} nested list binding, readers defer the binding of nested lists to their first
+ * access.
+ */
+@ApplicationScoped
+public class ObjectReaderRegistry {
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    @Facebook
+    private Instance<NestedListBinding> nestedListBindings;
+
+    private NestedListBinding nestedListBinding;
+
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+    private final ConcurrentMap<Class<?>, JavaType> listTypes = new ConcurrentHashMap<Class<?>, JavaType>();
+
+    private final ConcurrentMap<Class<?>, ObjectReader> listReaders = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+    @PostConstruct
+    void init() {
+        nestedListBinding = nestedListBindings.isUnsatisfied() ? NestedListBinding.EAGER : nestedListBindings.get();
+        for (Class<?> modelType : FacebookModule.getModelTypes()) {
+            readerFor(modelType);
+            listReaderFor(modelType);
+        }
+    }
+
+    /**
+     * @return when the readers of this registry bind the lists nested in the model objects
+     */
+    public NestedListBinding getNestedListBinding() {
+        return nestedListBinding;
+    }
+
+    /**
+     * @return the reader binding the given type
+     */
+    public ObjectReader readerFor(Class<?> type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = register(readers, type, configure(objectMapper.readerFor(type)));
+        }
+        return reader;
+    }
+
+    /**
+     * @return the type of a list of the given element type
+     */
+    public JavaType listTypeOf(Class<?> elementType) {
+        JavaType listType = listTypes.get(elementType);
+        if (listType == null) {
+            TypeFactory typeFactory = objectMapper.getTypeFactory();
+            listType = register(listTypes, elementType, typeFactory.constructCollectionType(List.class, elementType));
+        }
+        return listType;
+    }
+
+    /**
+     * @return the reader binding a JSON array to a list of the given element type
+     */
+    public ObjectReader listReaderFor(Class<?> elementType) {
+        ObjectReader reader = listReaders.get(elementType);
+        if (reader == null) {
+            reader = register(listReaders, elementType,
+                    configure(objectMapper.readerFor(listTypeOf(elementType))));
+        }
+        return reader;
+    }
+
+    private ObjectReader configure(ObjectReader reader) {
+        if (nestedListBinding == NestedListBinding.LAZY) {
+            return reader.withAttribute(FacebookModule.LAZY_NESTED_LISTS, Boolean.TRUE);
+        }
+        return reader;
+    }
+
+    private static <V> V register(ConcurrentMap<Class<?>, V> registry, Class<?> type, V value) {
+        V existing = registry.putIfAbsent(type, value);
+        return existing != null ? existing : value;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.api.exception.AgoravaException;
+import org.agorava.facebook.PagedConnection;
+import org.agorava.facebook.jackson.ConnectionPage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link PagedConnection} following the "paging.next" links of a connection, with up to {@code prefetchPages} pages
+ * fetched on the given executor while the current page is consumed.
+ */
+class PagedConnectionImpl<T> implements PagedConnection<T> {
+
+    /**
+     * Fetches and binds one page of the connection.
+     */
+    interface PageFetcher<T> {
+
+        ConnectionPage<T> fetch(String uri);
+    }
+
+    private final String firstPageUri;
+
+    private final PageFetcher<T> fetcher;
+
+    private final Executor executor;
+
+    private final int prefetchPages;
+
+    // weak, so that a walk abandoned before its end doesn't stay reachable from the connection
+    private final Set<PageIterator> walks = Collections.synchronizedSet(Collections.newSetFromMap(
+            new WeakHashMap<PageIterator, Boolean>()));
+
+    PagedConnectionImpl(String firstPageUri, PageFetcher<T> fetcher, Executor executor, int prefetchPages) {
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException("prefetchPages must be positive or 0, was " + prefetchPages);
+        }
+        this.firstPageUri = firstPageUri;
+        this.fetcher = fetcher;
+        this.executor = executor;
+        this.prefetchPages = prefetchPages;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        PageIterator walk = new PageIterator();
+        walks.add(walk);
+        return walk;
+    }
+
+    @Override
+    public Stream<T> stream() {
+        final PageIterator walk = (PageIterator) iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(walk, Spliterator.ORDERED), false)
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        walk.close();
+                    }
+                });
+    }
+
+    @Override
+    public void close() {
+        List<PageIterator> started;
+        synchronized (walks) {
+            started = new ArrayList<PageIterator>(walks);
+        }
+        for (PageIterator walk : started) {
+            walk.close();
+        }
+    }
+
+    class PageIterator implements Iterator<T> {
+
+        private final ArrayDeque<ConnectionPage<T>> ready = new ArrayDeque<ConnectionPage<T>>();
+
+        private Iterator<T> current = Collections.<T>emptyList().iterator();
+
+        private String nextUri = firstPageUri;
+
+        private Future<?> inFlight;
+
+        private RuntimeException failure;
+
+        private boolean closed;
+
+        PageIterator() {
+            if (prefetchPages > 0) {
+                synchronized (this) {
+                    scheduleFetch();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                ConnectionPage<T> page = prefetchPages > 0 ? takeFetchedPage() : fetchPage();
+                if (page == null) {
+                    walks.remove(this);
+                    return false;
+                }
+                current = page.getData().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Connections can't be removed while paging");
+        }
+
+        /**
+         * @return true if {@link #hasNext()} can answer from the pages at hand, without fetching or waiting for one
+         */
+        synchronized boolean isHasNextKnown() {
+            return current.hasNext() || !ready.isEmpty() || failure != null || closed
+                    || nextUri == null && inFlight == null;
+        }
+
+        synchronized void close() {
+            closed = true;
+            ready.clear();
+            if (inFlight != null) {
+                inFlight.cancel(true);
+            }
+            walks.remove(this);
+            notifyAll();
+        }
+
+        private ConnectionPage<T> fetchPage() {
+            String uri;
+            synchronized (this) {
+                if (closed || nextUri == null) {
+                    return null;
+                }
+                uri = nextUri;
+            }
+            ConnectionPage<T> page = fetcher.fetch(uri);
+            synchronized (this) {
+                nextUri = page.getNext();
+            }
+            return page;
+        }
+
+        private synchronized ConnectionPage<T> takeFetchedPage() {
+            while (ready.isEmpty()) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (closed || nextUri == null && inFlight == null) {
+                    return null;
+                }
+                scheduleFetch();
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AgoravaException("Interrupted while waiting for the next page of " + firstPageUri, e);
+                }
+            }
+            ConnectionPage<T> page = ready.poll();
+            scheduleFetch();
+            return page;
+        }
+
+        // must hold the lock
+        private void scheduleFetch() {
+            if (closed || inFlight != null || nextUri == null || ready.size() >= prefetchPages) {
+                return;
+            }
+            final String uri = nextUri;
+            nextUri = null;
+            FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+                @Override
+                public void run() {
+                    fetchInBackground(uri);
+                }
+            }, null);
+            inFlight = task;
+            try {
+                executor.execute(task);
+            } catch (RuntimeException e) {
+                inFlight = null;
+                nextUri = uri;
+                throw e;
+            }
+        }
+
+        private void fetchInBackground(String uri) {
+            ConnectionPage<T> page = null;
+            RuntimeException error = null;
+            try {
+                page = fetcher.fetch(uri);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            synchronized (this) {
+                inFlight = null;
+                if (!closed) {
+                    if (error != null) {
+                        failure = error;
+                    } else {
+                        ready.add(page);
+                        nextUri = page.getNext();
+                        scheduleFetch();
+                    }
+                }
+                notifyAll();
+            }
+        }
+    }
+}
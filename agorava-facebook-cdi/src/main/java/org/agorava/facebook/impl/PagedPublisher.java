@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.facebook.PagedConnection;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Publisher} walking a new {@link PagedConnection} for each subscriber. Elements are emitted from the executor
+ * only while the subscriber has outstanding demand, so the next page is fetched when the subscriber asks for more
+ * than the current page holds and not before. Completion is signalled as soon as the last element of the last page is
+ * emitted, without waiting for more demand.
+ */
+class PagedPublisher<T> implements Publisher<T> {
+
+    /**
+     * Opens the connection walked by one subscription.
+     */
+    interface Source<T> {
+
+        PagedConnection<T> open();
+    }
+
+    private final Source<T> source;
+
+    private final Executor executor;
+
+    PagedPublisher(Source<T> source, Executor executor) {
+        this.source = source;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        PageSubscription subscription = new PageSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        // the drain loop was held while onSubscribe ran, so that no element is emitted before it returns
+        executor.execute(subscription);
+    }
+
+    /**
+     * Serializes the signals of one subscription: whoever increments {@code wip} from 0 runs the drain loop, the others
+     * only record that it has to go round once more.
+     */
+    private class PageSubscription implements Subscription, Runnable {
+
+        private final Subscriber<? super T> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger(1);
+
+        private volatile boolean cancelled;
+
+        private volatile Throwable invalidRequest;
+
+        // only touched by the drain loop
+        private PagedConnection<T> connection;
+
+        private Iterator<T> walk;
+
+        PageSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " elements, must be positive (rule 3.9)");
+            } else {
+                addDemand(n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                if (cancelled) {
+                    closeConnection();
+                    return;
+                }
+                if (invalidRequest != null) {
+                    fail(invalidRequest);
+                    return;
+                }
+                long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand) {
+                    if (cancelled) {
+                        closeConnection();
+                        return;
+                    }
+                    T element;
+                    try {
+                        if (walk == null) {
+                            connection = source.open();
+                            walk = connection.iterator();
+                        }
+                        if (!walk.hasNext()) {
+                            complete();
+                            return;
+                        }
+                        element = walk.next();
+                    } catch (RuntimeException e) {
+                        fail(e);
+                        return;
+                    }
+                    if (element == null) {
+                        continue;
+                    }
+                    try {
+                        subscriber.onNext(element);
+                    } catch (RuntimeException e) {
+                        // a subscriber throwing from onNext is considered to have cancelled its subscription (rule 2.13)
+                        cancelled = true;
+                        closeConnection();
+                        return;
+                    }
+                    emitted++;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                try {
+                    if (isWalkOver()) {
+                        complete();
+                        return;
+                    }
+                } catch (RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Tells whether the walk is over once the demand is met, so that the end of the last page is signalled without
+         * waiting for more demand. Only asked when the answer doesn't take fetching a page nobody requested yet.
+         */
+        private boolean isWalkOver() {
+            if (!(walk instanceof PagedConnectionImpl.PageIterator)) {
+                return false;
+            }
+            PagedConnectionImpl<?>.PageIterator pages = (PagedConnectionImpl<?>.PageIterator) walk;
+            return pages.isHasNextKnown() && !pages.hasNext();
+        }
+
+        private void addDemand(long n) {
+            while (true) {
+                long current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+                long updated = current + n;
+                if (requested.compareAndSet(current, updated < 0 ? Long.MAX_VALUE : updated)) {
+                    return;
+                }
+            }
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        private void complete() {
+            cancelled = true;
+            closeConnection();
+            subscriber.onComplete();
+        }
+
+        private void fail(Throwable error) {
+            cancelled = true;
+            closeConnection();
+            subscriber.onError(error);
+        }
+
+        private void closeConnection() {
+            if (connection != null) {
+                connection.close();
+                connection = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of a call budget of the {@link RateGovernor}.
+ */
+public final class RateBudget {
+
+    private final double availableCalls;
+
+    private final double callsPerSecond;
+
+    private final int usage;
+
+    private final long blockedNanos;
+
+    RateBudget(double availableCalls, double callsPerSecond, int usage, long blockedNanos) {
+        this.availableCalls = availableCalls;
+        this.callsPerSecond = callsPerSecond;
+        this.usage = usage;
+        this.blockedNanos = blockedNanos;
+    }
+
+    /**
+     * @return the calls that can be sent right away, negative when calls are waiting for the budget, infinite when no
+     * budget applies
+     */
+    public double getAvailableCalls() {
+        return availableCalls;
+    }
+
+    /**
+     * @return the current refill rate of the budget, adapted to the reported usage
+     */
+    public double getCallsPerSecond() {
+        return callsPerSecond;
+    }
+
+    /**
+     * @return the last usage reported by Facebook, in percent, or -1 if none was reported yet
+     */
+    public int getUsage() {
+        return usage;
+    }
+
+    /**
+     * @return how long calls remain stopped because Facebook reported the limits as reached
+     */
+    public long getBlockedFor(TimeUnit unit) {
+        return unit.convert(blockedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "RateBudget{availableCalls=" + availableCalls + ", callsPerSecond=" + callsPerSecond + ", usage=" + usage
+                + "%, blockedFor=" + TimeUnit.NANOSECONDS.toMillis(blockedNanos) + "ms}";
+    }
+}
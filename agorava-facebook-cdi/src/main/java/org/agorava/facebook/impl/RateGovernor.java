@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.agorava.api.exception.AgoravaException;
+import org.agorava.api.rest.Response;
+import org.agorava.facebook.Facebook;
+import org.agorava.facebook.cdi.RateLimitPolicy;
+import org.agorava.facebook.model.RateLimitExceededException;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Governs the rate of the calls sent to the Graph API according to the {@code @Facebook} {@link RateLimitPolicy} of
+ * the application: calls wait for the budgets of the application and of their access token, and the budgets follow the
+ * usage reported by Facebook in the X-App-Usage (application) and X-Business-Use-Case-Usage (access token) headers.
+ */
+@ApplicationScoped
+public class RateGovernor {
+
+    static final String APP_USAGE_HEADER = "X-App-Usage";
+
+    static final String BUSINESS_USE_CASE_USAGE_HEADER = "X-Business-Use-Case-Usage";
+
+    private static final String[] USAGE_FIELDS = {"call_count", "total_cputime", "total_time"};
+
+    private static final String REGAIN_ACCESS_FIELD = "estimated_time_to_regain_access";
+
+    private static final int MAX_TOKEN_BUDGETS = 10000;
+
+    @Inject
+    @Facebook
+    private Instance<RateLimitPolicy> policies;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    private final AtomicLong delayedCalls = new AtomicLong();
+
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    private RateLimitPolicy policy;
+
+    private TokenBucket appBudget;
+
+    private Map<String, TokenBucket> tokenBudgets;
+
+    @PostConstruct
+    void init() {
+        policy = policies.isUnsatisfied() ? RateLimitPolicy.unlimited() : policies.get();
+        appBudget = new TokenBucket(policy.getAppCallsPerSecond(), System.nanoTime());
+        tokenBudgets = new LinkedHashMap<String, TokenBucket>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > MAX_TOKEN_BUDGETS;
+            }
+        };
+    }
+
+    /**
+     * Waits until the given number of calls fit in the budgets of the application and of the access token, and takes
+     * them.
+     *
+     * @param tokenScope the access token the calls are signed with
+     * @param calls      the number of calls about to be sent, more than one for batch requests
+     * @throws RateLimitExceededException if the calls would have to wait longer than the policy allows
+     */
+    public void acquire(String tokenScope, int calls) {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            TokenBucket tokenBudget = tokenBudget(tokenScope, now);
+            wait = Math.max(appBudget.delay(now, calls), tokenBudget.delay(now, calls));
+            if (wait > policy.getMaxWait(TimeUnit.NANOSECONDS)) {
+                rejectedCalls.incrementAndGet();
+                throw new RateLimitExceededException("Facebook call refused to stay within the rate limits, retry in "
+                        + TimeUnit.NANOSECONDS.toMillis(wait) + "ms", TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+            appBudget.take(now, calls);
+            tokenBudget.take(now, calls);
+        }
+        if (wait > 0) {
+            delayedCalls.incrementAndGet();
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AgoravaException("Interrupted while waiting for the Facebook rate limits", e);
+            }
+        }
+    }
+
+    /**
+     * Adapts the budgets to the usage reported in the headers of a response. Unreadable usage headers are ignored.
+     *
+     * @param tokenScope the access token the request was signed with
+     * @param response   the response from the Graph API
+     */
+    public void record(String tokenScope, Response response) {
+        String appUsage = response.getHeader(APP_USAGE_HEADER);
+        String businessUseCaseUsage = response.getHeader(BUSINESS_USE_CASE_USAGE_HEADER);
+        if (appUsage == null && businessUseCaseUsage == null) {
+            return;
+        }
+        try {
+            Usage app = appUsage != null ? readAppUsage(objectMapper.readTree(appUsage)) : null;
+            Usage token = businessUseCaseUsage != null
+                    ? readBusinessUseCaseUsage(objectMapper.readTree(businessUseCaseUsage)) : null;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (app != null) {
+                    appBudget.adapt(now, app.percent, app.regainNanos, policy.getUsageCeiling());
+                }
+                if (token != null) {
+                    tokenBudget(tokenScope, now).adapt(now, token.percent, token.regainNanos,
+                            policy.getUsageCeiling());
+                }
+            }
+        } catch (IOException ignored) {
+            // Usage headers are advisory, a malformed one must not fail the call
+        }
+    }
+
+    public RateLimitPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the current budget of the whole application
+     */
+    public synchronized RateBudget getAppBudget() {
+        return appBudget.snapshot(System.nanoTime());
+    }
+
+    /**
+     * @return the current budget of the given access token, or null if no call was made with it lately
+     */
+    public synchronized RateBudget getTokenBudget(String tokenScope) {
+        TokenBucket tokenBudget = tokenBudgets.get(tokenScope);
+        return tokenBudget != null ? tokenBudget.snapshot(System.nanoTime()) : null;
+    }
+
+    /**
+     * @return the number of calls that had to wait for their budget
+     */
+    public long getDelayedCalls() {
+        return delayedCalls.get();
+    }
+
+    /**
+     * @return the number of calls refused because their budget was exhausted for longer than the maximum wait
+     */
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    private TokenBucket tokenBudget(String tokenScope, long now) {
+        TokenBucket tokenBudget = tokenBudgets.get(tokenScope);
+        if (tokenBudget == null) {
+            tokenBudget = new TokenBucket(policy.getTokenCallsPerSecond(), now);
+            tokenBudgets.put(tokenScope, tokenBudget);
+        }
+        return tokenBudget;
+    }
+
+    /**
+     * X-App-Usage holds the percentages of the application's call count, CPU time and total time used:
+     * {"call_count":28,"total_cputime":25,"total_time":25}.
+     *
+     */
+    private static Usage readAppUsage(JsonNode usage) {
+        return new Usage(maxUsage(usage), 0);
+    }
+
+    /**
+     * X-Business-Use-Case-Usage holds the same percentages per business and use case, with an estimate in minutes of the
+     * time left before access is regained: {"1234":[{"type":"pages","call_count":1,"total_cputime":1,"total_time":1,
+     * "estimated_time_to_regain_access":0}]}.
+     */
+    private static Usage readBusinessUseCaseUsage(JsonNode usageByBusiness) {
+        int usage = 0;
+        long regainMinutes = 0;
+        for (Iterator<JsonNode> businesses = usageByBusiness.elements(); businesses.hasNext(); ) {
+            for (JsonNode useCase : businesses.next()) {
+                usage = Math.max(usage, maxUsage(useCase));
+                regainMinutes = Math.max(regainMinutes, useCase.path(REGAIN_ACCESS_FIELD).asLong());
+            }
+        }
+        return new Usage(usage, TimeUnit.MINUTES.toNanos(regainMinutes));
+    }
+
+    private static int maxUsage(JsonNode usage) {
+        int max = 0;
+        for (String field : USAGE_FIELDS) {
+            max = Math.max(max, usage.path(field).asInt());
+        }
+        return max;
+    }
+
+    /**
+     * The highest usage percentage reported in a header and the longest estimated time to regain access.
+     */
+    private static final class Usage {
+
+        final int percent;
+
+        final long regainNanos;
+
+        Usage(int percent, long regainNanos) {
+            this.percent = percent;
+            this.regainNanos = regainNanos;
+        }
+    }
+}
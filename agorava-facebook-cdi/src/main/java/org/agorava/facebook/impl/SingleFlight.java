@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.api.exception.AgoravaException;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces concurrent identical reads: while a read is in flight, callers asking for the same key wait for it and
+ * get its result instead of sending their own request. The result is shared between all these callers, who must
+ * therefore not modify it. Nothing is kept once the read completes.
+ */
+@ApplicationScoped
+public class SingleFlight {
+
+    private final ConcurrentMap<String, Future<?>> inFlight = new ConcurrentHashMap<String, Future<?>>();
+
+    /**
+     * Runs the read for the given key, or waits for the one already running for it.
+     *
+     * @param key  identifies the read, e.g. the access token, the request URI and the Java type of the result
+     * @param read the read to run if none is in flight for the key
+     * @return the result of the read
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Callable<T> read) {
+        FutureTask<T> task = new FutureTask<T>(read);
+        Future<?> running = inFlight.putIfAbsent(key, task);
+        if (running != null) {
+            return (T) await(running);
+        }
+        try {
+            task.run();
+            return await(task);
+        } finally {
+            inFlight.remove(key, task);
+        }
+    }
+
+    /**
+     * Builds the key of a read: the same URI read with another access token or bound to other types is another read.
+     */
+    public static String key(String tokenScope, String uri, Class<?>... types) {
+        StringBuilder key = new StringBuilder(tokenScope).append('|').append(uri);
+        for (Class<?> type : types) {
+            key.append('|').append(type.getName());
+        }
+        return key.toString();
+    }
+
+    private static <T> T await(Future<T> read) {
+        try {
+            return read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AgoravaException("Interrupted while waiting for a Facebook read", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new AgoravaException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Call budget refilled at a steady rate, slowed down and eventually stopped as the usage reported by Facebook grows.
+ * Calls are taken ahead of time: a call that has to wait for its budget takes it right away and leaves the bucket
+ * overdrawn, so that the calls arriving after it wait behind it. A request counting for more calls than the bucket
+ * holds, such as a batch, only waits for a full bucket and leaves it in debt for the rest. Not thread safe,
+ * {@link RateGovernor} guards it.
+ */
+final class TokenBucket {
+
+    private static final double MIN_THROTTLE = 0.05;
+
+    private static final long DEFAULT_BLOCKING_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final double capacity;
+
+    private final double callsPerNano;
+
+    private double available;
+
+    private double throttle = 1;
+
+    private long refilledAt;
+
+    private long blockedUntil;
+
+    private int usage = -1;
+
+    /**
+     * @param callsPerSecond the refill rate, infinite for a bucket only stopping calls on the usage Facebook reports
+     */
+    TokenBucket(double callsPerSecond, long now) {
+        this.capacity = Double.isInfinite(callsPerSecond) ? callsPerSecond : Math.max(1, Math.ceil(callsPerSecond));
+        this.callsPerNano = callsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.available = capacity;
+        this.refilledAt = now;
+        this.blockedUntil = now;
+    }
+
+    /**
+     * @return the nanoseconds to wait before the given number of calls fit in the budget, or before the bucket is full
+     * for more calls than it holds
+     */
+    long delay(long now, int calls) {
+        refill(now);
+        double needed = Math.min(calls, capacity);
+        long wait = available >= needed ? 0 : (long) Math.ceil((needed - available) / (callsPerNano * throttle));
+        return Math.max(wait, blockedUntil - now);
+    }
+
+    void take(long now, int calls) {
+        refill(now);
+        available -= calls;
+    }
+
+    /**
+     * Adapts the budget to the usage reported by Facebook: full rate up to half of the ceiling, then slowing down
+     * linearly, and no calls at all from the ceiling on or while Facebook estimates that access is not regained yet.
+     *
+     * @param usage        the reported usage, in percent
+     * @param regainNanos  Facebook's estimate of the time left before access is regained, 0 if none
+     * @param usageCeiling the usage at which calls stop, in percent
+     */
+    void adapt(long now, int usage, long regainNanos, int usageCeiling) {
+        refill(now);
+        this.usage = usage;
+        if (usage >= usageCeiling || regainNanos > 0) {
+            throttle = MIN_THROTTLE;
+            blockedUntil = now + (regainNanos > 0 ? regainNanos : DEFAULT_BLOCKING_NANOS);
+        } else {
+            throttle = Math.max(MIN_THROTTLE, Math.min(1, 2.0 * (usageCeiling - usage) / usageCeiling));
+        }
+        if (!Double.isInfinite(capacity)) {
+            available = Math.min(available, capacity * throttle);
+        }
+    }
+
+    RateBudget snapshot(long now) {
+        refill(now);
+        return new RateBudget(available, callsPerNano * throttle * TimeUnit.SECONDS.toNanos(1), usage,
+                Math.max(0, blockedUntil - now));
+    }
+
+    private void refill(long now) {
+        if (!Double.isInfinite(capacity) && now - refilledAt > 0) {
+            available = Math.min(capacity, available + (now - refilledAt) * callsPerNano * throttle);
+        }
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.agorava.facebook.impl;
+
+import org.agorava.api.oauth.Token;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Derives the key identifying whose view of the Graph API a request gets from its access token. The key is a prefix
+ * of the SHA-256 of the token, so that the caches, rate limits and sync states keyed by it never hold the token itself.
+ */
+public final class TokenScope {
+
+    private static final int SCOPE_BYTES = 16;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private TokenScope() {
+    }
+
+    /**
+     * @param accessToken the access token the requests are signed with, or null if there is none
+     * @return the hex of the first 16 bytes of the SHA-256 of the token, or an empty string without token
+     */
+    public static String of(Token accessToken) {
+        if (accessToken == null || accessToken.getToken() == null) {
+            return "";
+        }
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(accessToken.getToken().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        char[] scope = new char[SCOPE_BYTES * 2];
+        for (int i = 0; i < SCOPE_BYTES; i++) {
+            scope[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+            scope[2 * i + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(scope);
+    }
+}
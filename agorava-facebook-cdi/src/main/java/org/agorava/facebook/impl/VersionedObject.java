@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+/**
+ * A Graph API object with the ETag Facebook sent it with.
+ */
+public class VersionedObject<T> {
+
+    private final T value;
+
+    private final String etag;
+
+    public VersionedObject(T value, String etag) {
+        this.value = value;
+        this.etag = etag;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * The ETag of the object, or null if Facebook didn't send one
+     */
+    public String getEtag() {
+        return etag;
+    }
+}
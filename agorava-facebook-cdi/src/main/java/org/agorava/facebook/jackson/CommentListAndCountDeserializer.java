@@ -17,40 +17,39 @@
 
 package org.agorava.facebook.jackson;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.agorava.facebook.model.Comment;
 import org.agorava.facebook.model.ListAndCount;
 
-import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
-import static org.agorava.api.atinject.BeanResolver.getInstance;
+/**
+ * Binds the comments of a Graph API list, counting the comments bound.
+ */
+class CommentListAndCountDeserializer extends DataListDeserializer<Comment, ListAndCount<Comment>> {
+
+    public CommentListAndCountDeserializer() {
+        this(null);
+    }
+
+    private CommentListAndCountDeserializer(JsonDeserializer<Object> elementDeserializer) {
+        super(Comment.class, elementDeserializer);
+    }
 
-class CommentListAndCountDeserializer extends JsonDeserializer<ListAndCount<Comment>> {
+    @Override
+    CommentListAndCountDeserializer withElementDeserializer(JsonDeserializer<Object> elementDeserializer) {
+        return new CommentListAndCountDeserializer(elementDeserializer);
+    }
+
+    @Override
+    ListAndCount<Comment> build(List<Comment> data, int count) {
+        List<Comment> comments = data != null ? data : Collections.<Comment>emptyList();
+        return new ListAndCount<Comment>(comments, comments.size());
+    }
 
-    @SuppressWarnings("unchecked")
     @Override
-    public ListAndCount<Comment> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
-            JsonProcessingException {
-        ObjectMapper mapper = getInstance().resolve(ObjectMapper.class);
-        jp.setCodec(mapper);
-        if (jp.hasCurrentToken()) {
-            JsonNode commentsNode = jp.readValueAs(JsonNode.class);
-            JsonNode dataNode = commentsNode.get("data");
-            List<Comment> commentsList = dataNode != null ?
-                    (List<Comment>) mapper.reader(new TypeReference<List<Comment>>() {
-                    }).readValue(dataNode) :
-                    Collections.<Comment>emptyList();
-            return new ListAndCount<Comment>(commentsList, commentsList.size());
-        }
-
-        return null;
+    ListAndCount<Comment> defer(Deferred<ListAndCount<Comment>> deferred) {
+        return new LazyListAndCount<Comment>(deferred);
     }
 }
@@ -18,11 +18,13 @@
 package org.agorava.facebook.jackson;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.agorava.facebook.model.Reference;
 
 import java.util.Date;
+import java.util.List;
 
 /**
  * Annotated mixin to add Jackson annotations to Comment.
@@ -39,4 +41,8 @@ abstract class CommentMixin {
 
     @JsonProperty("likes")
     int likesCount;
+
+    // "likes" is bound to the count, the list of likers is not part of the property
+    @JsonIgnore
+    abstract List<Reference> getLikes();
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.jackson;
+
+import java.util.List;
+
+/**
+ * Holds one page of a Graph API connection: the bound elements and the link to the following page.
+ */
+public class ConnectionPage<T> {
+
+    private final List<T> data;
+
+    private final String next;
+
+    public ConnectionPage(List<T> data, String next) {
+        this.data = data;
+        this.next = next;
+    }
+
+    /**
+     * The elements of the page's "data" array
+     */
+    public List<T> getData() {
+        return data;
+    }
+
+    /**
+     * The "paging.next" URL of the following page, or null if this is the last page
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming reader for Graph API connection responses.
+ * Walks the response envelope with the given {@link JsonParser} and binds each element of the "data" array as it is
+ * encountered, so that a connection page is parsed only once and never materialized as a tree.
+ */
+public final class ConnectionReader {
+
+    private static final String DATA = "data";
+
+    private static final String PAGING = "paging";
+
+    private static final String NEXT = "next";
+
+    private ConnectionReader() {
+    }
+
+    /**
+     * Reads the "data" array of a connection response, skipping every other member of the envelope.
+     *
+     * @param jp            a parser positioned before or on the response's opening object
+     * @param elementReader the reader used to bind each element of the "data" array
+     * @return the bound elements, or an empty list if the response has no "data" array
+     * @throws IOException if the response can't be read or an element can't be bound
+     */
+    public static <T> List<T> readDataList(JsonParser jp, ObjectReader elementReader) throws IOException {
+        return ConnectionReader.<T>readPage(jp, elementReader).getData();
+    }
+
+    /**
+     * Reads the "data" array of a connection response, skipping every other member of the envelope.
+     *
+     * @param jp            a parser positioned before or on the response's opening object
+     * @param elementReader reads each element of the "data" array
+     * @return the elements read, or an empty list if the response has no "data" array
+     * @throws IOException if the response can't be read or an element can't be bound
+     */
+    public static <T> List<T> readDataList(JsonParser jp, ElementReader<T> elementReader) throws IOException {
+        return readPage(jp, elementReader).getData();
+    }
+
+    /**
+     * Reads a connection response as a page: the elements of its "data" array and the "paging.next" link to the
+     * following page, if any.
+     *
+     * @param jp            a parser positioned before or on the response's opening object
+     * @param elementReader the reader used to bind each element of the "data" array
+     * @return the page read
+     * @throws IOException if the response can't be read or an element can't be bound
+     */
+    public static <T> ConnectionPage<T> readPage(JsonParser jp, final ObjectReader elementReader) throws IOException {
+        return readPage(jp, new ElementReader<T>() {
+            @Override
+            public T read(JsonParser jp) throws IOException {
+                return elementReader.readValue(jp);
+            }
+        });
+    }
+
+    /**
+     * Reads a connection response as a page: the elements of its "data" array and the "paging.next" link to the
+     * following page, if any.
+     *
+     * @param jp            a parser positioned before or on the response's opening object
+     * @param elementReader reads each element of the "data" array
+     * @return the page read
+     * @throws IOException if the response can't be read or an element can't be bound
+     */
+    public static <T> ConnectionPage<T> readPage(JsonParser jp, ElementReader<T> elementReader) throws IOException {
+        JsonToken token = jp.hasCurrentToken() ? jp.getCurrentToken() : jp.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(jp, "Expected a Graph API connection object but got " + token);
+        }
+        List<T> elements = new ArrayList<T>();
+        String next = null;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jp.getCurrentName();
+            token = jp.nextToken();
+            if (DATA.equals(fieldName) && token == JsonToken.START_ARRAY) {
+                while (jp.nextToken() != JsonToken.END_ARRAY) {
+                    T element = elementReader.read(jp);
+                    elements.add(element);
+                }
+            } else if (PAGING.equals(fieldName) && token == JsonToken.START_OBJECT) {
+                next = readNextLink(jp);
+            } else {
+                jp.skipChildren();
+            }
+        }
+        return new ConnectionPage<T>(elements, next);
+    }
+
+    /**
+     * Reads the response of a multi-object fetch (the "ids" parameter), an object holding each requested object under
+     * its ID.
+     *
+     * @param jp            a parser positioned before or on the response's opening object
+     * @param elementReader the reader used to bind each object
+     * @param objects       the map receiving the bound objects, keyed by ID
+     * @throws IOException if the response can't be read or an object can't be bound
+     */
+    public static <T> void readObjectMap(JsonParser jp, ObjectReader elementReader, Map<String, T> objects)
+            throws IOException {
+        JsonToken token = jp.hasCurrentToken() ? jp.getCurrentToken() : jp.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(jp, "Expected a Graph API multi-object response but got " + token);
+        }
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String id = jp.getCurrentName();
+            jp.nextToken();
+            T object = elementReader.readValue(jp);
+            objects.put(id, object);
+        }
+    }
+
+    private static String readNextLink(JsonParser jp) throws IOException {
+        String next = null;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jp.getCurrentName();
+            JsonToken token = jp.nextToken();
+            if (NEXT.equals(fieldName) && token == JsonToken.VALUE_STRING) {
+                next = jp.getText();
+            } else {
+                jp.skipChildren();
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Reads one element of a connection.
+     */
+    public interface ElementReader<T> {
+
+        /**
+         * @param jp a parser positioned on the first token of the element, to be left on its last token
+         * @return the element read
+         */
+        T read(JsonParser jp) throws IOException;
+    }
+}
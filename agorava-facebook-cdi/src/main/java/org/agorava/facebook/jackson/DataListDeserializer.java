@@ -0,0 +1,272 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.agorava.api.exception.AgoravaException;
+import org.agorava.facebook.model.ListAndCount;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Base of the deserializers of nested Graph API lists, objects holding their elements in a "data" array along with
+ * optional "count" and paging members. The element deserializer is resolved once, when Jackson contextualizes the
+ * deserializer for its property, and the "data" array is bound while streaming through the object. An array given in
+ * place of the object is read as its "data" array.
+ * <p>
+ * When the {@link FacebookModule#LAZY_NESTED_LISTS} attribute is set, the list object is only copied to a token buffer
+ * and bound the first time the value is accessed, which spares the binding of lists the application never reads.
+ *
+ * @param <E> the type of the elements
+ * @param <T> the type bound from the list object
+ */
+abstract class DataListDeserializer<E, T> extends JsonDeserializer<T> implements ContextualDeserializer {
+
+    private static final String DATA = "data";
+
+    private static final String COUNT = "count";
+
+    private final Class<E> elementType;
+
+    private final JsonDeserializer<Object> elementDeserializer;
+
+    DataListDeserializer(Class<E> elementType, JsonDeserializer<Object> elementDeserializer) {
+        this.elementType = elementType;
+        this.elementDeserializer = elementDeserializer;
+    }
+
+    /**
+     * @return a copy of this deserializer binding the elements with the given deserializer
+     */
+    abstract DataListDeserializer<E, T> withElementDeserializer(JsonDeserializer<Object> elementDeserializer);
+
+    /**
+     * @param data  the elements of the "data" array, or null if there was none
+     * @param count the value of the "count" member, or -1 if there was none
+     * @return the value bound from the list object
+     */
+    abstract T build(List<E> data, int count);
+
+    /**
+     * @return a value binding the list object when it is first accessed
+     */
+    abstract T defer(Deferred<T> deferred);
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property)
+            throws JsonMappingException {
+        if (elementDeserializer != null) {
+            return this;
+        }
+        return withElementDeserializer(ctxt.findContextualValueDeserializer(ctxt.constructType(elementType), property));
+    }
+
+    @Override
+    public T deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        if (Boolean.TRUE.equals(ctxt.getAttribute(FacebookModule.LAZY_NESTED_LISTS)) && jp.getCodec() != null) {
+            TokenBuffer buffer = new TokenBuffer(jp, ctxt);
+            buffer.copyCurrentStructure(jp);
+            return defer(new Deferred<T>(this, buffer, jp.getCodec()));
+        }
+        return read(jp, ctxt, null);
+    }
+
+    /**
+     * Binds the elements with the contextual element deserializer, or with the given codec if there is no context.
+     */
+    private T read(JsonParser jp, DeserializationContext ctxt, ObjectCodec codec) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.START_ARRAY) {
+            return build(readData(jp, ctxt, codec), -1);
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(jp, "Expected a Graph API list of " + elementType.getSimpleName()
+                    + " but got " + token);
+        }
+        List<E> data = null;
+        int count = -1;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jp.getCurrentName();
+            token = jp.nextToken();
+            if (DATA.equals(fieldName) && token == JsonToken.START_ARRAY) {
+                data = readData(jp, ctxt, codec);
+            } else if (COUNT.equals(fieldName) && token == JsonToken.VALUE_NUMBER_INT) {
+                count = jp.getIntValue();
+            } else {
+                jp.skipChildren();
+            }
+        }
+        return build(data, count);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<E> readData(JsonParser jp, DeserializationContext ctxt, ObjectCodec codec) throws IOException {
+        List<E> data = new ArrayList<E>();
+        JsonToken token;
+        while ((token = jp.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_NULL) {
+                data.add(null);
+            } else if (codec != null) {
+                data.add(codec.readValue(jp, elementType));
+            } else {
+                data.add((E) elementDeserializer.deserialize(jp, ctxt));
+            }
+        }
+        return data;
+    }
+
+    /**
+     * A list object copied from the response, bound once on first access with the codec of the parser it was read
+     * from.
+     */
+    static final class Deferred<T> {
+
+        private DataListDeserializer<?, T> deserializer;
+
+        private TokenBuffer buffer;
+
+        private ObjectCodec codec;
+
+        private T value;
+
+        Deferred(DataListDeserializer<?, T> deserializer, TokenBuffer buffer, ObjectCodec codec) {
+            this.deserializer = deserializer;
+            this.buffer = buffer;
+            this.codec = codec;
+        }
+
+        synchronized T get() {
+            if (buffer != null) {
+                try {
+                    JsonParser jp = buffer.asParser(codec);
+                    try {
+                        jp.nextToken();
+                        value = deserializer.read(jp, null, codec);
+                    } finally {
+                        jp.close();
+                    }
+                } catch (IOException e) {
+                    throw new AgoravaException("Error deserializing data from Facebook: " + e.getMessage(), e);
+                }
+                deserializer = null;
+                buffer = null;
+                codec = null;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * List bound on first access. A list object without a "data" array gives an empty list, since the value itself
+     * can't be null once deferred. Serializes as the bound list.
+     */
+    static final class LazyList<E> extends AbstractList<E> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Deferred<List<E>> deferred;
+
+        LazyList(Deferred<List<E>> deferred) {
+            this.deferred = deferred;
+        }
+
+        @Override
+        public E get(int index) {
+            return list().get(index);
+        }
+
+        @Override
+        public int size() {
+            return list().size();
+        }
+
+        private List<E> list() {
+            List<E> list = deferred.get();
+            return list != null ? list : Collections.<E>emptyList();
+        }
+
+        private Object writeReplace() throws ObjectStreamException {
+            return new ArrayList<E>(list());
+        }
+    }
+
+    /**
+     * List and count bound on first access to either. Serializes as its bound list and count, read back as a plain
+     * {@link ListAndCount}.
+     */
+    static final class LazyListAndCount<E> extends ListAndCount<E> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Deferred<ListAndCount<E>> deferred;
+
+        LazyListAndCount(Deferred<ListAndCount<E>> deferred) {
+            super(null, 0);
+            this.deferred = deferred;
+        }
+
+        @Override
+        public int getCount() {
+            return deferred.get().getCount();
+        }
+
+        @Override
+        public List<E> getList() {
+            return deferred.get().getList();
+        }
+
+        private Object writeReplace() throws ObjectStreamException {
+            List<E> list = getList();
+            return new SerializedListAndCount<E>(list != null ? new ArrayList<E>(list) : null, getCount());
+        }
+    }
+
+    /**
+     * The serialized form of a {@link LazyListAndCount}, as {@link ListAndCount} itself isn't serializable.
+     */
+    private static final class SerializedListAndCount<E> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<E> list;
+
+        private final int count;
+
+        SerializedListAndCount(ArrayList<E> list, int count) {
+            this.list = list;
+            this.count = count;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            return new ListAndCount<E>(list, count);
+        }
+    }
+}
@@ -17,6 +17,11 @@
 
 package org.agorava.facebook.jackson;
 
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.deser.ValueInstantiator;
+import com.fasterxml.jackson.databind.deser.ValueInstantiators;
+import com.fasterxml.jackson.databind.deser.std.StdValueInstantiator;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import org.agorava.facebook.Facebook;
 import org.agorava.facebook.jackson.PhotoMixin.ImageMixin;
@@ -53,52 +58,107 @@ import org.agorava.facebook.model.Video;
 import org.agorava.facebook.model.VideoPost;
 import org.agorava.facebook.model.WorkEntry;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Jackson module for setting up mixin annotations on Facebook model types. This enables the use of Jackson annotations without
- * directly annotating the model classes themselves.
+ * directly annotating the model classes themselves. The {@link Reference} instances bound are shared through a
+ * {@link ReferencePool}.
  *
  * @author Craig Walls
  */
 @Facebook
 public class FacebookModule extends SimpleModule {
 
+    /**
+     * Name of the deserialization attribute which, set to {@link Boolean#TRUE}, defers the binding of the lists nested
+     * in the model objects, such as the likes and comments of a post, until they are first accessed.
+     */
+    public static final String LAZY_NESTED_LISTS = "org.agorava.facebook.lazyNestedLists";
+
+    private static final Map<Class<?>, Class<?>> MIXINS = new LinkedHashMap<Class<?>, Class<?>>();
+
+    static {
+        MIXINS.put(FacebookProfile.class, FacebookProfileMixin.class);
+        MIXINS.put(WorkEntry.class, WorkEntryMixin.class);
+        MIXINS.put(EducationEntry.class, EducationEntryMixin.class);
+        MIXINS.put(Reference.class, ReferenceMixin.class);
+        MIXINS.put(GroupMemberReference.class, GroupMemberReferenceMixin.class);
+        MIXINS.put(Album.class, AlbumMixin.class);
+        MIXINS.put(Group.class, GroupMixin.class);
+        MIXINS.put(Event.class, EventMixin.class);
+        MIXINS.put(Invitation.class, InvitationMixin.class);
+        MIXINS.put(EventInvitee.class, EventInviteeMixin.class);
+        MIXINS.put(Checkin.class, CheckinMixin.class);
+        MIXINS.put(Page.class, PageMixin.class);
+        MIXINS.put(Location.class, LocationMixin.class);
+        MIXINS.put(Comment.class, CommentMixin.class);
+        MIXINS.put(Tag.class, TagMixin.class);
+        MIXINS.put(Video.class, VideoMixin.class);
+        MIXINS.put(Photo.class, PhotoMixin.class);
+        MIXINS.put(Image.class, ImageMixin.class);
+        MIXINS.put(Post.class, PostMixin.class);
+        MIXINS.put(CheckinPost.class, CheckinPostMixin.class);
+        MIXINS.put(LinkPost.class, LinkPostMixin.class);
+        MIXINS.put(NotePost.class, NotePostMixin.class);
+        MIXINS.put(PhotoPost.class, PhotoPostMixin.class);
+        MIXINS.put(StatusPost.class, StatusPostMixin.class);
+        MIXINS.put(VideoPost.class, VideoPostMixin.class);
+        MIXINS.put(Account.class, AccountMixin.class);
+        MIXINS.put(SwfPost.class, SwfPostMixin.class);
+        MIXINS.put(MusicPost.class, MusicPostMixin.class);
+        MIXINS.put(GroupMembership.class, GroupMembershipMixin.class);
+        MIXINS.put(FamilyMember.class, FamilyMemberMixin.class);
+        MIXINS.put(Question.class, QuestionMixin.class);
+        MIXINS.put(QuestionOption.class, QuestionOptionMixin.class);
+    }
+
+    private final ReferencePool referencePool;
+
     public FacebookModule() {
+        this(new ReferencePool(ReferencePool.DEFAULT_CAPACITY));
+    }
+
+    /**
+     * @param referencePool the pool the bound references are taken from
+     */
+    public FacebookModule(ReferencePool referencePool) {
         super("FacebookModule");
+        this.referencePool = referencePool;
+    }
+
+    /**
+     * @return the pool the bound references are taken from
+     */
+    public ReferencePool getReferencePool() {
+        return referencePool;
+    }
+
+    /**
+     * @return the model types the module sets up mixin annotations for
+     */
+    public static Set<Class<?>> getModelTypes() {
+        return Collections.unmodifiableSet(MIXINS.keySet());
     }
 
     @Override
     public void setupModule(SetupContext context) {
-        context.setMixInAnnotations(FacebookProfile.class, FacebookProfileMixin.class);
-        context.setMixInAnnotations(WorkEntry.class, WorkEntryMixin.class);
-        context.setMixInAnnotations(EducationEntry.class, EducationEntryMixin.class);
-        context.setMixInAnnotations(Reference.class, ReferenceMixin.class);
-        context.setMixInAnnotations(GroupMemberReference.class, GroupMemberReferenceMixin.class);
-        context.setMixInAnnotations(Album.class, AlbumMixin.class);
-        context.setMixInAnnotations(Group.class, GroupMixin.class);
-        context.setMixInAnnotations(Event.class, EventMixin.class);
-        context.setMixInAnnotations(Invitation.class, InvitationMixin.class);
-        context.setMixInAnnotations(EventInvitee.class, EventInviteeMixin.class);
-        context.setMixInAnnotations(Checkin.class, CheckinMixin.class);
-        context.setMixInAnnotations(Page.class, PageMixin.class);
-        context.setMixInAnnotations(Location.class, LocationMixin.class);
-        context.setMixInAnnotations(Comment.class, CommentMixin.class);
-        context.setMixInAnnotations(Tag.class, TagMixin.class);
-        context.setMixInAnnotations(Video.class, VideoMixin.class);
-        context.setMixInAnnotations(Photo.class, PhotoMixin.class);
-        context.setMixInAnnotations(Image.class, ImageMixin.class);
-        context.setMixInAnnotations(Post.class, PostMixin.class);
-        context.setMixInAnnotations(CheckinPost.class, CheckinPostMixin.class);
-        context.setMixInAnnotations(LinkPost.class, LinkPostMixin.class);
-        context.setMixInAnnotations(NotePost.class, NotePostMixin.class);
-        context.setMixInAnnotations(PhotoPost.class, PhotoPostMixin.class);
-        context.setMixInAnnotations(StatusPost.class, StatusPostMixin.class);
-        context.setMixInAnnotations(VideoPost.class, VideoPostMixin.class);
-        context.setMixInAnnotations(Account.class, AccountMixin.class);
-        context.setMixInAnnotations(SwfPost.class, SwfPostMixin.class);
-        context.setMixInAnnotations(MusicPost.class, MusicPostMixin.class);
-        context.setMixInAnnotations(GroupMembership.class, GroupMembershipMixin.class);
-        context.setMixInAnnotations(FamilyMember.class, FamilyMemberMixin.class);
-        context.setMixInAnnotations(Question.class, QuestionMixin.class);
-        context.setMixInAnnotations(QuestionOption.class, QuestionOptionMixin.class);
+        for (Map.Entry<Class<?>, Class<?>> mixin : MIXINS.entrySet()) {
+            context.setMixInAnnotations(mixin.getKey(), mixin.getValue());
+        }
+        context.addValueInstantiators(new ValueInstantiators.Base() {
+            @Override
+            public ValueInstantiator findValueInstantiator(DeserializationConfig config, BeanDescription beanDesc,
+                                                           ValueInstantiator defaultInstantiator) {
+                // Exact match only: subclasses of Reference carry more than an ID and a name
+                if (beanDesc.getBeanClass() == Reference.class && defaultInstantiator instanceof StdValueInstantiator) {
+                    return new InterningReferenceInstantiator((StdValueInstantiator) defaultInstantiator, referencePool);
+                }
+                return defaultInstantiator;
+            }
+        });
     }
 }
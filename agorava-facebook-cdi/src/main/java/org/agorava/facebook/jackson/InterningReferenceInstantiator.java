@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.jackson;
+
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdValueInstantiator;
+
+/**
+ * Instantiator of {@link org.agorava.facebook.model.Reference} taking the instances from a {@link ReferencePool}
+ * instead of calling the constructor declared by {@link ReferenceMixin}.
+ */
+class InterningReferenceInstantiator extends StdValueInstantiator {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient ReferencePool pool;
+
+    InterningReferenceInstantiator(StdValueInstantiator src, ReferencePool pool) {
+        super(src);
+        this.pool = pool;
+    }
+
+    @Override
+    public Object createFromObjectWith(DeserializationContext ctxt, Object[] args) {
+        return pool.intern((String) args[0], (String) args[1]);
+    }
+}
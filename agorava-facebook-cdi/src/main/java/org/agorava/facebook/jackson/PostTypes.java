@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.agorava.facebook.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.agorava.facebook.model.Post.PostType;
+
+import java.io.IOException;
+
+/**
+ * Tags the posts read from the Graph API with the "postType" member {@link PostMixin} selects the {@link
+ * org.agorava.facebook.model.Post} subclass with, and normalizes their "type" member to the same value.
+ * <p>
+ * Streamed posts are buffered as tokens, so that their type, which Facebook sends after most of the other members, is
+ * known before binding, without reading them as trees. The lists nested in the posts stay tokens until they are bound.
+ */
+public final class PostTypes {
+
+    private static final String POST_TYPE = "postType";
+
+    private static final String TYPE = "type";
+
+    private PostTypes() {
+    }
+
+    /**
+     * Reads the post the parser is on and returns a parser over the same post, tagged with its type.
+     *
+     * @param jp       a parser on the start of a post, left on its end
+     * @param postType the type of the post, or null to take it from its "type" member
+     * @return a parser over the tagged post, on which the post can be bound
+     */
+    public static JsonParser tag(JsonParser jp, String postType) throws IOException {
+        if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(jp, "Expected a post object but got " + jp.getCurrentToken());
+        }
+        TokenBuffer members = new TokenBuffer(jp);
+        members.writeStartObject();
+        String type = null;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String name = jp.getCurrentName();
+            jp.nextToken();
+            if (TYPE.equals(name)) {
+                type = jp.getValueAsString();
+                jp.skipChildren();
+            } else if (POST_TYPE.equals(name)) {
+                jp.skipChildren();
+            } else {
+                members.writeFieldName(name);
+                members.copyCurrentStructure(jp);
+            }
+        }
+        members.writeEndObject();
+        String resolved = postType != null ? postType : postTypeOf(type);
+        // the tags come first, so that the polymorphic binding doesn't buffer the members once more
+        TokenBuffer tags = new TokenBuffer(jp);
+        tags.writeStartObject();
+        tags.writeStringField(POST_TYPE, resolved);
+        tags.writeStringField(TYPE, resolved);
+        JsonParser rest = members.asParser(jp.getCodec());
+        rest.nextToken();
+        return JsonParserSequence.createFlattened(false, tags.asParser(jp.getCodec()), rest);
+    }
+
+    /**
+     * Tags a post read as a tree.
+     *
+     * @param postType the type of the post, or null to take it from its "type" member
+     */
+    public static void tag(ObjectNode post, String postType) {
+        String resolved = postType != null ? postType : postTypeOf(post.path(TYPE).textValue());
+        post.put(POST_TYPE, resolved);
+        post.put(TYPE, resolved);
+    }
+
+    /**
+     * @return the given "type" of a post if it is one of {@link PostType}, "post" otherwise
+     */
+    public static String postTypeOf(String type) {
+        if (type != null) {
+            try {
+                PostType.valueOf(type.toUpperCase());
+                return type;
+            } catch (IllegalArgumentException e) {
+                return "post";
+            }
+        }
+        return "post";
+    }
+}
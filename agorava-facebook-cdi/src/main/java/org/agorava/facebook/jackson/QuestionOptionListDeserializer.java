@@ -17,36 +17,37 @@
 
 package org.agorava.facebook.jackson;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.TreeNode;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.agorava.api.atinject.BeanResolver;
 import org.agorava.facebook.model.QuestionOption;
 
-import java.io.IOException;
 import java.util.List;
 
-class QuestionOptionListDeserializer extends JsonDeserializer<List<QuestionOption>> {
-    @SuppressWarnings("unchecked")
+/**
+ * Binds the options of a question, or null if the list has no "data" array (an empty list when the binding is
+ * deferred).
+ */
+class QuestionOptionListDeserializer extends DataListDeserializer<QuestionOption, List<QuestionOption>> {
+
+    public QuestionOptionListDeserializer() {
+        this(null);
+    }
+
+    private QuestionOptionListDeserializer(JsonDeserializer<Object> elementDeserializer) {
+        super(QuestionOption.class, elementDeserializer);
+    }
+
+    @Override
+    QuestionOptionListDeserializer withElementDeserializer(JsonDeserializer<Object> elementDeserializer) {
+        return new QuestionOptionListDeserializer(elementDeserializer);
+    }
+
+    @Override
+    List<QuestionOption> build(List<QuestionOption> data, int count) {
+        return data;
+    }
+
     @Override
-    public List<QuestionOption> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
-            JsonProcessingException {
-        ObjectMapper mapper = BeanResolver.getInstance().resolve(ObjectMapper.class);
-        jp.setCodec(mapper);
-        if (jp.hasCurrentToken()) {
-            TreeNode dataNode = jp.readValueAs(JsonNode.class).get("data");
-            if (dataNode != null) {
-                // TODO: THIS PROBABLY ISN"T RIGHT
-                return (List<QuestionOption>) mapper.reader(new TypeReference<List<QuestionOption>>() {
-                }).readValue((JsonNode) dataNode);
-            }
-        }
-
-        return null;
+    List<QuestionOption> defer(Deferred<List<QuestionOption>> deferred) {
+        return new LazyList<QuestionOption>(deferred);
     }
 }
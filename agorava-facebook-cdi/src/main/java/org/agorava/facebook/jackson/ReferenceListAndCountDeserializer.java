@@ -17,43 +17,38 @@
 
 package org.agorava.facebook.jackson;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.agorava.facebook.model.ListAndCount;
 import org.agorava.facebook.model.Reference;
 
-import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
-import static org.agorava.api.atinject.BeanResolver.getInstance;
+/**
+ * Binds the references of a Graph API list along with the "count" Facebook sends with them, 0 if none.
+ */
+class ReferenceListAndCountDeserializer extends DataListDeserializer<Reference, ListAndCount<Reference>> {
+
+    public ReferenceListAndCountDeserializer() {
+        this(null);
+    }
+
+    private ReferenceListAndCountDeserializer(JsonDeserializer<Object> elementDeserializer) {
+        super(Reference.class, elementDeserializer);
+    }
 
-class ReferenceListAndCountDeserializer extends JsonDeserializer<ListAndCount<Reference>> {
+    @Override
+    ReferenceListAndCountDeserializer withElementDeserializer(JsonDeserializer<Object> elementDeserializer) {
+        return new ReferenceListAndCountDeserializer(elementDeserializer);
+    }
+
+    @Override
+    ListAndCount<Reference> build(List<Reference> data, int count) {
+        return new ListAndCount<Reference>(data != null ? data : Collections.<Reference>emptyList(), Math.max(count, 0));
+    }
 
-    @SuppressWarnings("unchecked")
     @Override
-    public ListAndCount<Reference> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
-            JsonProcessingException {
-        ObjectMapper mapper = getInstance().resolve(ObjectMapper.class);
-
-        jp.setCodec(mapper);
-        if (jp.hasCurrentToken()) {
-            JsonNode node = jp.readValueAs(JsonNode.class);
-            JsonNode dataNode = node.get("data");
-            List<Reference> commentsList = dataNode != null ?
-                    (List<Reference>) mapper.reader(new TypeReference<List<Reference>>() {
-                    }).readValue(dataNode) :
-                    Collections.<Reference>emptyList();
-            JsonNode countNode = node.get("count");
-            int referenceCount = countNode != null ? countNode.intValue() : 0;
-            return new ListAndCount<Reference>(commentsList, referenceCount);
-        }
-
-        return null;
+    ListAndCount<Reference> defer(Deferred<ListAndCount<Reference>> deferred) {
+        return new LazyListAndCount<Reference>(deferred);
     }
 }
@@ -17,35 +17,37 @@
 
 package org.agorava.facebook.jackson;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.agorava.facebook.model.Reference;
 
-import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
-import static org.agorava.api.atinject.BeanResolver.getInstance;
+/**
+ * Binds the references of a Graph API list, or an empty list if it has no "data" array.
+ */
+class ReferenceListDeserializer extends DataListDeserializer<Reference, List<Reference>> {
+
+    public ReferenceListDeserializer() {
+        this(null);
+    }
+
+    private ReferenceListDeserializer(JsonDeserializer<Object> elementDeserializer) {
+        super(Reference.class, elementDeserializer);
+    }
+
+    @Override
+    ReferenceListDeserializer withElementDeserializer(JsonDeserializer<Object> elementDeserializer) {
+        return new ReferenceListDeserializer(elementDeserializer);
+    }
+
+    @Override
+    List<Reference> build(List<Reference> data, int count) {
+        return data != null ? data : Collections.<Reference>emptyList();
+    }
 
-class ReferenceListDeserializer extends JsonDeserializer<List<Reference>> {
-    @SuppressWarnings("unchecked")
     @Override
-    public List<Reference> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-        ObjectMapper mapper = getInstance().resolve(ObjectMapper.class);
-        jp.setCodec(mapper);
-        if (jp.hasCurrentToken()) {
-            JsonNode dataNode = (JsonNode) jp.readValueAs(JsonNode.class).get("data");
-            if (dataNode != null) {
-                return (List<Reference>) mapper.reader(new TypeReference<List<Reference>>() {
-                }).readValue(dataNode);
-            }
-        }
-
-        return Collections.emptyList();
+    List<Reference> defer(Deferred<List<Reference>> deferred) {
+        return new LazyList<Reference>(deferred);
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.jackson;
+
+import org.agorava.facebook.model.Reference;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pool sharing the {@link Reference} instances bound from Graph API responses, so that a user or page appearing in
+ * many posts, comments or likes is held in memory once, along with its ID and name strings.
+ * <p>
+ * The pool is a fixed size table indexed by the hash of the ID and name: a reference evicts the one of a colliding
+ * slot, and slots only hold weak references, so that the pool neither grows nor keeps alive references the application
+ * dropped. Pooled references are immutable, which makes sharing them safe.
+ */
+public final class ReferencePool {
+
+    /**
+     * The number of slots of the pool of a {@link FacebookModule} created with the default constructor.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final AtomicReferenceArray<WeakReference<Reference>> slots;
+
+    private final int mask;
+
+    /**
+     * @param capacity the number of references the pool can hold, rounded up to a power of two
+     */
+    public ReferencePool(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30, was " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        slots = new AtomicReferenceArray<WeakReference<Reference>>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * @return the pooled reference with the given ID and name, pooling a new one if there is none
+     */
+    public Reference intern(String id, String name) {
+        int slot = spread(hash(id) * 31 + hash(name)) & mask;
+        WeakReference<Reference> entry = slots.get(slot);
+        Reference pooled = entry != null ? entry.get() : null;
+        if (pooled != null && equal(id, pooled.getId()) && equal(name, pooled.getName())) {
+            return pooled;
+        }
+        Reference reference = new Reference(id, name);
+        slots.set(slot, new WeakReference<Reference>(reference));
+        return reference;
+    }
+
+    /**
+     * @return the number of references the pool can hold
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    private static int hash(String value) {
+        return value != null ? value.hashCode() : 0;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
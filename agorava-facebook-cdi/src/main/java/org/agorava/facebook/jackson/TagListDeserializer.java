@@ -17,31 +17,37 @@
 
 package org.agorava.facebook.jackson;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.agorava.api.atinject.BeanResolver;
 import org.agorava.facebook.model.Tag;
 
-import java.io.IOException;
 import java.util.List;
 
-class TagListDeserializer extends JsonDeserializer<List<Tag>> {
-    @SuppressWarnings("unchecked")
+/**
+ * Binds the tags of a Graph API list, or null if it has no "data" array (an empty list when the binding is
+ * deferred).
+ */
+class TagListDeserializer extends DataListDeserializer<Tag, List<Tag>> {
+
+    public TagListDeserializer() {
+        this(null);
+    }
+
+    private TagListDeserializer(JsonDeserializer<Object> elementDeserializer) {
+        super(Tag.class, elementDeserializer);
+    }
+
+    @Override
+    TagListDeserializer withElementDeserializer(JsonDeserializer<Object> elementDeserializer) {
+        return new TagListDeserializer(elementDeserializer);
+    }
+
+    @Override
+    List<Tag> build(List<Tag> data, int count) {
+        return data;
+    }
+
     @Override
-    public List<Tag> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-        ObjectMapper mapper = BeanResolver.getInstance().resolve(ObjectMapper.class);
-        jp.setCodec(mapper);
-        if (jp.hasCurrentToken()) {
-            JsonNode dataNode = (JsonNode) jp.readValueAs(JsonNode.class).get("data");
-            return (List<Tag>) mapper.reader(new TypeReference<List<Tag>>() {
-            }).readValue(dataNode);
-        }
-
-        return null;
+    List<Tag> defer(Deferred<List<Tag>> deferred) {
+        return new LazyList<Tag>(deferred);
     }
 }
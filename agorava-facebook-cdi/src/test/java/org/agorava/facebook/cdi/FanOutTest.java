@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.cdi;
+
+import org.agorava.api.exception.AgoravaException;
+import org.agorava.api.oauth.OAuthService;
+import org.agorava.facebook.impl.TestBeans;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FanOutTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @After
+    public void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void returnsTheResultsAndFailuresByOwner() {
+        final IllegalStateException failure = new IllegalStateException("Unsupported get request");
+        FanOut fanOut = fanOut(null, pool);
+
+        FanOutResult<List<String>> result = fanOut.run(Arrays.asList("3", "1", "2", "1"),
+                new Function<String, List<String>>() {
+                    @Override
+                    public List<String> apply(String ownerId) {
+                        if ("2".equals(ownerId)) {
+                            throw failure;
+                        }
+                        return Arrays.asList(ownerId + "_a", ownerId + "_b");
+                    }
+                });
+
+        assertEquals(Arrays.asList("3", "1"), Arrays.asList(result.getResults().keySet().toArray()));
+        assertEquals(Collections.singletonMap("2", failure), result.getFailures());
+        assertFalse(result.isComplete());
+        assertEquals(Arrays.asList("3_a", "3_b", "1_a", "1_b"), FanOutResult.merge(result));
+    }
+
+    @Test
+    public void boundsTheOperationsOfAnAccessToken() {
+        FanOut fanOut = fanOut(new FanOutPolicy(16, 2), pool);
+
+        FanOutResult<String> result = fanOut.run(owners(12), sleeping());
+
+        assertTrue(result.isComplete());
+        assertEquals(12, result.getResults().size());
+        assertTrue("Ran " + maxRunning.get() + " at once", maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void boundsTheOperationsOfTheApplication() {
+        FanOut fanOut = fanOut(new FanOutPolicy(1, 4), pool);
+
+        FanOutResult<String> result = fanOut.run(owners(6), sleeping());
+
+        assertTrue(result.isComplete());
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void rejectsANestedRun() {
+        final FanOut fanOut = fanOut(null, pool);
+
+        FanOutResult<Object> result = fanOut.run(Collections.singletonList("1"), new Function<String, Object>() {
+            @Override
+            public Object apply(String ownerId) {
+                return fanOut.run(Collections.singletonList("2"), sleeping());
+            }
+        });
+
+        assertTrue(result.getFailures().get("1") instanceof IllegalStateException);
+        assertEquals(3, fanOut.run(owners(3), sleeping()).getResults().size());
+    }
+
+    @Test
+    public void failsTheOwnersItCouldNotRun() {
+        final AtomicInteger submitted = new AtomicInteger();
+        FanOut fanOut = fanOut(new FanOutPolicy(1, 1), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                if (submitted.incrementAndGet() % 2 == 0) {
+                    throw new RejectedExecutionException("Pool saturated");
+                }
+                pool.execute(command);
+            }
+        });
+
+        FanOutResult<String> result = fanOut.run(owners(4), sleeping());
+
+        assertEquals(Arrays.asList("0", "2"), Arrays.asList(result.getResults().keySet().toArray()));
+        assertEquals(Arrays.asList("1", "3"), Arrays.asList(result.getFailures().keySet().toArray()));
+        assertTrue(result.getFailures().get("1") instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void appliesTheDefaultPolicy() {
+        assertEquals(FanOutPolicy.DEFAULT_MAX_APP_OPERATIONS, fanOut(null, pool).getPolicy().getMaxAppOperations());
+    }
+
+    @Test(expected = AgoravaException.class)
+    public void requiresAnExecutor() {
+        fanOut(null, null).run(owners(1), sleeping());
+    }
+
+    @Test
+    public void runsNoOwner() {
+        FanOutResult<String> result = fanOut(null, pool).run(Collections.<String>emptyList(), sleeping());
+
+        assertTrue(result.getResults().isEmpty());
+        assertTrue(result.isComplete());
+    }
+
+    private FanOut fanOut(FanOutPolicy policy, Executor executor) {
+        FanOut fanOut = new FanOut();
+        TestBeans.inject(fanOut, "service", TestBeans.proxy(OAuthService.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getAccessToken".equals(method.getName())) {
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+        }));
+        TestBeans.inject(fanOut, "policies", TestBeans.instance(policy));
+        TestBeans.inject(fanOut, "executors", TestBeans.instance(executor));
+        fanOut.init();
+        return fanOut;
+    }
+
+    private Function<String, String> sleeping() {
+        return new Function<String, String>() {
+            @Override
+            public String apply(String ownerId) {
+                int now = running.incrementAndGet();
+                for (int max = maxRunning.get(); now > max && !maxRunning.compareAndSet(max, now); ) {
+                    max = maxRunning.get();
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+                return ownerId;
+            }
+        };
+    }
+
+    private static List<String> owners(int count) {
+        String[] owners = new String[count];
+        for (int i = 0; i < count; i++) {
+            owners[i] = Integer.toString(i);
+        }
+        return Arrays.asList(owners);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.facebook.FeedChange;
+import org.agorava.facebook.FeedChange.Kind;
+import org.agorava.facebook.FeedService;
+import org.agorava.facebook.FeedSync.Source;
+import org.agorava.facebook.model.Post;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.enterprise.event.Event;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class FeedSyncImplTest {
+
+    private static final String OWNER = "owner";
+
+    private final List<Post> feed = new ArrayList<Post>();
+
+    private final List<FeedChange> fired = new ArrayList<FeedChange>();
+
+    private FeedSyncImpl feedSync;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void createFeedSync() {
+        feedSync = new FeedSyncImpl();
+        TestBeans.inject(feedSync, "feedService", TestBeans.proxy(FeedService.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getFeed".equals(method.getName()) && args.length == 5) {
+                    return window((Date) args[1], (Date) args[2], (Integer) args[3], (Integer) args[4]);
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+        }));
+        TestBeans.inject(feedSync, "changeEvents", TestBeans.proxy(Event.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("fire".equals(method.getName())) {
+                    fired.add((FeedChange) args[0]);
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+        }));
+        TestBeans.inject(feedSync, "service", TestBeans.proxy(org.agorava.api.oauth.OAuthService.class,
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                }));
+    }
+
+    @Test
+    public void firstSyncReportsTheMostRecentPage() {
+        addPosts("old", 150, 1000, 1);
+
+        List<FeedChange> changes = feedSync.sync(Source.FEED, OWNER);
+
+        assertEquals(FeedSyncImpl.PAGE_SIZE, changes.size());
+        assertEquals(changes, fired);
+        assertEquals(new Date(TimeUnit.SECONDS.toMillis(1149)), feedSync.getWatermark(Source.FEED, OWNER));
+    }
+
+    @Test
+    public void reportsEveryPostChangedSinceTheWatermark() {
+        addPosts("old", 10, 1000, 1);
+        feedSync.sync(Source.FEED, OWNER);
+        addPosts("new", 250, 2000, 1);
+
+        List<FeedChange> changes = feedSync.sync(Source.FEED, OWNER);
+
+        assertEquals(250, ids(changes, "new").size());
+        assertEquals(250, changes.size());
+        assertEquals(Kind.ADDED, changes.get(0).getKind());
+        assertEquals("new0", changes.get(0).getPost().getId());
+    }
+
+    @Test
+    public void walksThroughASecondHoldingMoreThanAPage() {
+        addPosts("old", 10, 1000, 0);
+        feedSync.sync(Source.FEED, OWNER);
+        addPosts("new", 250, 2000, 0);
+
+        List<FeedChange> changes = feedSync.sync(Source.FEED, OWNER);
+
+        assertEquals(250, ids(changes, "new").size());
+        assertEquals(250, changes.size());
+        assertEquals(0, feedSync.sync(Source.FEED, OWNER).size());
+    }
+
+    @Test
+    public void walksThroughABoundarySecondAfterNewerPosts() {
+        addPosts("old", 10, 1000, 0);
+        feedSync.sync(Source.FEED, OWNER);
+        addPosts("tie", 230, 2000, 0);
+        addPosts("new", 30, 3000, 1);
+
+        List<FeedChange> changes = feedSync.sync(Source.FEED, OWNER);
+
+        assertEquals(230, ids(changes, "tie").size());
+        assertEquals(30, ids(changes, "new").size());
+        assertEquals(260, changes.size());
+    }
+
+    /**
+     * Adds posts created one every {@code step} seconds from {@code from}, all in the same second for a step of 0.
+     */
+    private void addPosts(String prefix, int count, long from, long step) {
+        for (int i = 0; i < count; i++) {
+            Date time = new Date(TimeUnit.SECONDS.toMillis(from + i * step));
+            feed.add(new Post(prefix + i, null, time, time));
+        }
+    }
+
+    /**
+     * Serves the posts of the feed like Facebook: most recent first, both ends of the window included.
+     */
+    private List<Post> window(Date since, Date until, int offset, int limit) {
+        List<Post> posts = new ArrayList<Post>();
+        for (Post post : feed) {
+            if ((since == null || !post.getUpdatedTime().before(since))
+                    && (until == null || !post.getUpdatedTime().after(until))) {
+                posts.add(post);
+            }
+        }
+        Collections.sort(posts, new Comparator<Post>() {
+            @Override
+            public int compare(Post a, Post b) {
+                return b.getUpdatedTime().compareTo(a.getUpdatedTime());
+            }
+        });
+        return new ArrayList<Post>(posts.subList(Math.min(offset, posts.size()),
+                Math.min(offset + limit, posts.size())));
+    }
+
+    private static Set<String> ids(List<FeedChange> changes, String prefix) {
+        Set<String> ids = new HashSet<String>();
+        for (FeedChange change : changes) {
+            if (change.getPost().getId().startsWith(prefix)) {
+                ids.add(change.getPost().getId());
+            }
+        }
+        return ids;
+    }
+}
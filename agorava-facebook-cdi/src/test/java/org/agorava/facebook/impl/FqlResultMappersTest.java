@@ -0,0 +1,282 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.agorava.facebook.fql.FqlField;
+import org.agorava.facebook.fql.FqlResult;
+import org.agorava.facebook.fql.FqlResultMapper;
+import org.agorava.facebook.fql.FqlResultMappers;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FqlResultMappersTest {
+
+    private static final String ROW = "{\"page_id\":12345678901,\"name\":\"Agorava\",\"fan_count\":42,"
+            + "\"is_published\":true,\"rating\":4.5,\"checkins\":7,\"founded\":1262304000,\"description\":null,"
+            + "\"talking_about_count\":null,\"unmapped\":{\"nested\":[1,2]}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void mapsAStreamedRow() throws IOException {
+        assertMapped(FqlResultMappers.forClass(Page.class).mapObject(streamedRow(ROW)));
+    }
+
+    @Test
+    public void mapsARowReadAsAMap() throws IOException {
+        assertMapped(FqlResultMappers.forClass(Page.class).mapObject(mapRow(ROW)));
+    }
+
+    @Test
+    public void leavesMissingFieldsUnset() throws IOException {
+        FqlResultMapper<Page> mapper = FqlResultMappers.forClass(Page.class);
+
+        for (FqlResult row : new FqlResult[]{streamedRow("{\"name\":\"x\"}"), mapRow("{\"name\":\"x\"}")}) {
+            Page page = mapper.mapObject(row);
+            assertEquals("x", page.getName());
+            assertEquals(0L, page.getId());
+            assertEquals(-1, page.getTalkingAboutCount());
+            assertNull(page.getFounded());
+            assertNull(page.getRating());
+        }
+    }
+
+    @Test
+    public void mapsAClassOfAChildClassLoader() throws Exception {
+        Class<?> childPage = new ChildFirstClassLoader(Page.class).loadClass(Page.class.getName());
+        assertNotSame(Page.class, childPage);
+
+        FqlResultMapper<?> mapper = FqlResultMappers.forClass(childPage);
+
+        for (FqlResult row : new FqlResult[]{streamedRow(ROW), mapRow(ROW)}) {
+            Object page = mapper.mapObject(row);
+            assertEquals(childPage, page.getClass());
+            assertMapped((PageView) page);
+        }
+    }
+
+    private static void assertMapped(PageView page) {
+        assertEquals(12345678901L, page.getId());
+        assertEquals("Agorava", page.getName());
+        assertEquals(42, page.getFanCount());
+        assertTrue(page.isPublished());
+        assertEquals(Double.valueOf(4.5), page.getRating());
+        assertEquals(Integer.valueOf(7), page.getCheckins());
+        assertEquals(new Date(1262304000000L), page.getFounded());
+        assertEquals("none", page.getDescription());
+        assertEquals(-1, page.getTalkingAboutCount());
+    }
+
+    private FqlResult streamedRow(String json) throws IOException {
+        JsonParser jp = objectMapper.getFactory().createParser(json);
+        jp.nextToken();
+        FqlRow row = new FqlRow();
+        row.read(jp);
+        return row;
+    }
+
+    @SuppressWarnings("unchecked")
+    private FqlResult mapRow(String json) throws IOException {
+        return new FqlResult(objectMapper.readValue(json, Map.class));
+    }
+
+    /**
+     * The properties of {@link Page}, visible from the tests whichever class loader loaded it.
+     */
+    public interface PageView {
+
+        long getId();
+
+        String getName();
+
+        int getFanCount();
+
+        boolean isPublished();
+
+        Double getRating();
+
+        Integer getCheckins();
+
+        Date getFounded();
+
+        String getDescription();
+
+        int getTalkingAboutCount();
+    }
+
+    /**
+     * Maps FQL fields through annotated setters, fields with a setter and public fields, of primitive, boxed, String and
+     * Date types.
+     */
+    public static class Page implements PageView {
+
+        private long id;
+
+        @FqlField("name")
+        public String name;
+
+        @FqlField("fan_count")
+        private int fanCount;
+
+        private boolean published;
+
+        private Double rating;
+
+        @FqlField("checkins")
+        public Integer checkins;
+
+        @FqlField("founded")
+        private Date founded;
+
+        @FqlField("description")
+        private String description = "none";
+
+        @FqlField("talking_about_count")
+        public int talkingAboutCount = -1;
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @FqlField("page_id")
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int getFanCount() {
+            return fanCount;
+        }
+
+        public void setFanCount(int fanCount) {
+            this.fanCount = fanCount;
+        }
+
+        @Override
+        public boolean isPublished() {
+            return published;
+        }
+
+        @FqlField("is_published")
+        public void setPublished(boolean published) {
+            this.published = published;
+        }
+
+        @Override
+        public Double getRating() {
+            return rating;
+        }
+
+        @FqlField("rating")
+        public void setRating(Double rating) {
+            this.rating = rating;
+        }
+
+        @Override
+        public Integer getCheckins() {
+            return checkins;
+        }
+
+        @Override
+        public Date getFounded() {
+            return founded;
+        }
+
+        public void setFounded(Date founded) {
+            this.founded = founded;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public int getTalkingAboutCount() {
+            return talkingAboutCount;
+        }
+    }
+
+    /**
+     * Loads its own copy of a class instead of asking its parent, like the class loader of an application deployed in
+     * a container.
+     */
+    private static class ChildFirstClassLoader extends ClassLoader {
+
+        private final String className;
+
+        ChildFirstClassLoader(Class<?> type) {
+            super(type.getClassLoader());
+            this.className = type.getName();
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(className)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    byte[] bytes = read(name.replace('.', '/') + ".class");
+                    type = defineClass(name, bytes, 0, bytes.length);
+                }
+                return type;
+            }
+        }
+
+        private byte[] read(String resource) throws ClassNotFoundException {
+            InputStream in = getParent().getResourceAsStream(resource);
+            if (in == null) {
+                throw new ClassNotFoundException(resource);
+            }
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                    bytes.write(buffer, 0, read);
+                }
+                in.close();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new ClassNotFoundException(resource, e);
+            }
+        }
+    }
+}
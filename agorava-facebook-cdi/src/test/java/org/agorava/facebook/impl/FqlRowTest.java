@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.agorava.facebook.fql.FqlException;
+import org.agorava.facebook.fql.FqlResult;
+import org.agorava.facebook.fql.FqlResultMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@SuppressWarnings("deprecation")
+public class FqlRowTest {
+
+    private static final FqlResultMapper<String> NAME = new FqlResultMapper<String>() {
+        @Override
+        public String mapObject(FqlResult result) {
+            return result.getString("name");
+        }
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final FqlRow row = new FqlRow();
+
+    @Test
+    public void readsScalarsByName() throws IOException {
+        read("{\"uid\":1234567890123,\"name\":\"Craig\",\"rating\":4.5,\"fan_count\":\"42\","
+                + "\"verified\":true,\"created\":1325376000,\"email\":null,\"id\":12345678901234567890123}");
+
+        assertEquals(Long.valueOf(1234567890123L), row.getLong("uid"));
+        assertEquals("1234567890123", row.getString("uid"));
+        assertEquals("Craig", row.getString("name"));
+        assertEquals(Float.valueOf(4.5f), row.getFloat("rating"));
+        assertEquals(Integer.valueOf(42), row.getInteger("fan_count"));
+        assertEquals(Boolean.TRUE, row.getBoolean("verified"));
+        assertEquals(new Date(1325376000000L), row.getTime("created"));
+        assertNull(row.getString("email"));
+        assertNull(row.getLong("email"));
+        assertNull(row.getString("missing"));
+        assertNull(row.getBoolean("missing"));
+        assertEquals("12345678901234567890123", row.getString("id"));
+        assertEquals(1325376000, row.getObject("created"));
+        assertEquals(1234567890123L, row.getObject("uid"));
+    }
+
+    @Test
+    public void readsScalarsByColumn() throws IOException {
+        read("{\"uid\":7,\"rating\":4.5,\"email\":null}");
+
+        assertEquals(3, row.getColumnCount());
+        assertEquals("rating", row.getColumnName(1));
+        assertEquals(1, row.getColumn("rating"));
+        assertEquals(-1, row.getColumn("missing"));
+        assertEquals(7, row.getInt(0, -1));
+        assertEquals(7L, row.getLong(0, -1L));
+        assertEquals(4.5, row.getDouble(1, -1.0), 0.0);
+        assertTrue(row.isNull(2));
+        assertTrue(row.isNull(-1));
+        assertEquals(-1, row.getInt(2, -1));
+        assertEquals(-1L, row.getEpochSeconds(-1, -1L));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsAColumnOutOfTheRow() throws IOException {
+        read("{\"uid\":7}");
+
+        row.getColumnName(1);
+    }
+
+    @Test(expected = FqlException.class)
+    public void rejectsTextThatIsNotANumber() throws IOException {
+        read("{\"fan_count\":\"many\"}");
+
+        row.getInteger("fan_count");
+    }
+
+    @Test(expected = FqlException.class)
+    public void rejectsANumberOutOfTheIntRange() throws IOException {
+        read("{\"uid\":1234567890123}");
+
+        row.getInt(0, -1);
+    }
+
+    @Test
+    public void mapsNestedObjectsAndLists() throws IOException {
+        read("{\"page\":{\"name\":\"Agorava\",\"location\":{\"city\":\"Paris\"}},"
+                + "\"friends\":[{\"name\":\"Roy\"},{\"name\":\"Keith\"}],\"tags\":[\"a\",\"b\"]}");
+
+        assertEquals("Agorava", row.getObject("page", NAME));
+        assertEquals(Arrays.asList("Roy", "Keith"), row.getList("friends", NAME));
+        assertEquals("Paris", row.getObject("page", new FqlResultMapper<String>() {
+            @Override
+            public String mapObject(FqlResult result) {
+                return result.getObject("location", new FqlResultMapper<String>() {
+                    @Override
+                    public String mapObject(FqlResult location) {
+                        return location.getString("city");
+                    }
+                });
+            }
+        }));
+        assertEquals(Arrays.asList("a", "b"), row.getObject("tags"));
+        assertEquals("Paris", ((Map<?, ?>) ((Map<?, ?>) row.getObject("page")).get("location")).get("city"));
+        assertNull(row.getList("missing", NAME));
+    }
+
+    @Test(expected = FqlException.class)
+    public void rejectsAListOfScalarsMappedAsObjects() throws IOException {
+        read("{\"tags\":[\"a\",\"b\"]}");
+
+        row.getList("tags", NAME);
+    }
+
+    @Test
+    public void replacesThePreviousRow() throws IOException {
+        read("{\"uid\":1,\"name\":\"Craig\",\"friends\":[{\"name\":\"Roy\"}]}");
+        read("{\"uid\":2,\"name\":null}");
+
+        assertEquals(2, row.getColumnCount());
+        assertEquals(Long.valueOf(2), row.getLong("uid"));
+        assertNull(row.getString("name"));
+        assertNull(row.getList("friends", NAME));
+    }
+
+    @Test
+    public void readsARowWiderThanItsInitialColumns() throws IOException {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < 40; i++) {
+            json.append(i == 0 ? "" : ",").append("\"c").append(i).append("\":").append(i);
+        }
+        read(json.append('}').toString());
+
+        assertEquals(40, row.getColumnCount());
+        assertEquals("c39", row.getColumnName(39));
+        assertEquals(39, row.getInt(row.getColumn("c39"), -1));
+    }
+
+    @Test
+    public void rejectsARowThatIsNotAnObject() throws IOException {
+        try {
+            read("[1]");
+            throw new AssertionError("An array isn't a row");
+        } catch (JsonMappingException e) {
+            assertTrue(e.getMessage().startsWith("Expected an FQL result object but got START_ARRAY"));
+        }
+    }
+
+    private void read(String json) throws IOException {
+        JsonParser jp = objectMapper.getFactory().createParser(json);
+        jp.nextToken();
+        row.read(jp);
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.agorava.api.exception.AgoravaException;
+import org.agorava.api.oauth.OAuthService;
+import org.agorava.api.rest.Response;
+import org.agorava.facebook.GraphBatch;
+import org.agorava.facebook.cdi.GraphApiEndpoint;
+import org.agorava.facebook.cdi.NestedListBinding;
+import org.agorava.facebook.cdi.RateLimitPolicy;
+import org.agorava.facebook.jackson.FacebookModule;
+import org.agorava.facebook.model.Reference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends batches to a local server standing for the Graph API, which answers with canned batch responses.
+ */
+public class GraphBatchImplTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new FacebookModule());
+
+    private final List<Map<String, String>> requests = new ArrayList<Map<String, String>>();
+
+    private final List<String> responses = new ArrayList<String>();
+
+    private HttpServer server;
+
+    private GraphApiImpl graphApi;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.add(decodeForm(read(exchange.getRequestBody())));
+                byte[] body = (responses.isEmpty() ? "[]" : responses.remove(0)).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        graphApi = graphApi("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void sendsAtMostFiftyOperationsPerRequest() throws Exception {
+        GraphBatch batch = graphApi.batch();
+        List<CompletableFuture<Reference>> results = new ArrayList<CompletableFuture<Reference>>();
+        for (int i = 0; i < 120; i++) {
+            results.add(batch.fetchObject(String.valueOf(i), Reference.class));
+        }
+        responses.add(references(0, 50));
+        responses.add(references(50, 50));
+        responses.add(references(100, 20));
+
+        batch.execute();
+
+        assertEquals(0, batch.size());
+        assertEquals(3, requests.size());
+        assertEquals(50, operations(0).size());
+        assertEquals(50, operations(1).size());
+        assertEquals(20, operations(2).size());
+        assertEquals("GET", operations(1).get(0).get("method").asText());
+        assertTrue(operations(1).get(0).get("relative_url").asText().startsWith("50"));
+        for (int i = 0; i < 120; i++) {
+            assertEquals(String.valueOf(i), results.get(i).get().getId());
+        }
+    }
+
+    @Test
+    public void completesEachOperationWithItsTypedResultOrError() throws Exception {
+        GraphBatch batch = graphApi.batch();
+        CompletableFuture<Reference> object = batch.fetchObject("1", Reference.class);
+        CompletableFuture<List<Reference>> connections = batch.fetchConnections("1", "friends", Reference.class);
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put("message", "Hello & welcome");
+        CompletableFuture<String> published = batch.publish("1", "feed", data);
+        CompletableFuture<Void> deleted = batch.delete("2");
+        CompletableFuture<Reference> refused = batch.fetchObject("3", Reference.class);
+        CompletableFuture<Reference> skipped = batch.fetchObject("4", Reference.class);
+        responses.add("["
+                + response(200, "{\"id\":\"1\",\"name\":\"Craig\"}") + ","
+                + response(200, "{\"data\":[{\"id\":\"5\",\"name\":\"Roy\"},{\"id\":\"6\",\"name\":\"Keith\"}],"
+                + "\"paging\":{\"next\":\"https://graph.facebook.com/1/friends?after=6\"}}") + ","
+                + response(200, "{\"id\":\"1_7\"}") + ","
+                + response(200, "true") + ","
+                + response(403, "{\"error\":{\"message\":\"(#200) Permissions error\",\"code\":200}}") + ","
+                + "null]");
+
+        batch.execute();
+
+        Reference reference = object.get();
+        assertEquals("1", reference.getId());
+        assertEquals("Craig", reference.getName());
+        List<Reference> friends = connections.get();
+        assertEquals(2, friends.size());
+        assertEquals("Keith", friends.get(1).getName());
+        assertEquals("1_7", published.get());
+        assertNull(deleted.get());
+        assertTrue(failure(refused).getMessage().contains("HTTP 403"));
+        assertTrue(failure(refused).getMessage().contains("Permissions error"));
+        assertTrue(failure(skipped).getMessage().contains("didn't process"));
+
+        assertEquals("POST", operations(0).get(2).get("method").asText());
+        assertEquals("1/feed", operations(0).get(2).get("relative_url").asText());
+        assertEquals("message=Hello & welcome", URLDecoder.decode(operations(0).get(2).get("body").asText(), "UTF-8"));
+        assertEquals("DELETE", operations(0).get(3).get("method").asText());
+        assertEquals("false", requests.get(0).get("include_headers"));
+    }
+
+    @Test
+    public void failsTheOperationsMissingFromAShortResponse() throws Exception {
+        GraphBatch batch = graphApi.batch();
+        CompletableFuture<Reference> answered = batch.fetchObject("1", Reference.class);
+        CompletableFuture<Reference> second = batch.fetchObject("2", Reference.class);
+        CompletableFuture<Void> third = batch.delete("3");
+        responses.add("[" + response(200, "{\"id\":\"1\"}") + "]");
+
+        batch.execute();
+
+        assertEquals("1", answered.get().getId());
+        assertTrue(failure(second).getMessage().contains("No response for batched request GET 2"));
+        assertTrue(failure(third).getMessage().contains("No response for batched request DELETE 3"));
+    }
+
+    @Test
+    public void failsEveryOperationOfAnUnreadableResponse() throws Exception {
+        GraphBatch batch = graphApi.batch();
+        CompletableFuture<Reference> first = batch.fetchObject("1", Reference.class);
+        CompletableFuture<Void> second = batch.delete("2");
+        responses.add("{\"error\":{\"message\":\"Invalid OAuth access token.\"}}");
+
+        batch.execute();
+
+        assertTrue(failure(first) instanceof AgoravaException);
+        assertTrue(failure(second) instanceof AgoravaException);
+    }
+
+    private List<JsonNode> operations(int request) throws IOException {
+        List<JsonNode> operations = new ArrayList<JsonNode>();
+        for (JsonNode operation : objectMapper.readTree(requests.get(request).get("batch"))) {
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    private String references(int first, int count) throws IOException {
+        ArrayNode responses = objectMapper.createArrayNode();
+        for (int i = first; i < first + count; i++) {
+            responses.addObject().put("code", 200).put("body", "{\"id\":\"" + i + "\"}");
+        }
+        return objectMapper.writeValueAsString(responses);
+    }
+
+    private String response(int code, String body) throws IOException {
+        Map<String, Object> response = new HashMap<String, Object>();
+        response.put("code", code);
+        response.put("headers", Collections.singletonList(Collections.singletonMap("name", "Content-Type")));
+        response.put("body", body);
+        return objectMapper.writeValueAsString(response);
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("The operation should have failed");
+    }
+
+    private GraphApiImpl graphApi(String baseUrl) {
+        RateGovernor rateGovernor = new RateGovernor();
+        TestBeans.inject(rateGovernor, "policies", TestBeans.<RateLimitPolicy>instance(null));
+        TestBeans.inject(rateGovernor, "objectMapper", objectMapper);
+        rateGovernor.init();
+        ObjectReaderRegistry readers = new ObjectReaderRegistry();
+        TestBeans.inject(readers, "objectMapper", objectMapper);
+        TestBeans.inject(readers, "nestedListBindings", TestBeans.<NestedListBinding>instance(null));
+        readers.init();
+        GraphApiImpl graphApi = new GraphApiImpl();
+        TestBeans.inject(graphApi, "service", httpService());
+        TestBeans.inject(graphApi, "rateGovernor", rateGovernor);
+        TestBeans.inject(graphApi, "objectMapper", objectMapper);
+        TestBeans.inject(graphApi, "readers", readers);
+        TestBeans.inject(graphApi, "executors", TestBeans.<Executor>instance(null));
+        TestBeans.inject(graphApi, "endpoints", TestBeans.instance(new GraphApiEndpoint(baseUrl)));
+        return graphApi;
+    }
+
+    /**
+     * An unsigned stand-in of the OAuth service, posting the parameters of a request as a form.
+     */
+    private static OAuthService httpService() {
+        return TestBeans.proxy(OAuthService.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws IOException {
+                if ("getAccessToken".equals(method.getName())) {
+                    return null;
+                }
+                if ("sendSignedRequest".equals(method.getName()) && args.length == 3 && args[2] instanceof Map) {
+                    return post((String) args[1], (Map<?, ?>) args[2]);
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+        });
+    }
+
+    private static Response post(String uri, Map<?, ?> parameters) throws IOException {
+        StringBuilder form = new StringBuilder();
+        for (Map.Entry<?, ?> parameter : parameters.entrySet()) {
+            form.append(form.length() > 0 ? "&" : "").append(URLEncoder.encode(parameter.getKey().toString(), "UTF-8"))
+                    .append('=').append(URLEncoder.encode(parameter.getValue().toString(), "UTF-8"));
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(uri).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        OutputStream out = connection.getOutputStream();
+        out.write(form.toString().getBytes(StandardCharsets.UTF_8));
+        out.close();
+        final int code = connection.getResponseCode();
+        final byte[] body = read(connection.getInputStream());
+        final Map<String, String> headers = new HashMap<String, String>();
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (header.getKey() != null) {
+                headers.put(header.getKey(), header.getValue().get(0));
+            }
+        }
+        return TestBeans.proxy(Response.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("isSuccessful".equals(name)) {
+                    return code >= 200 && code < 300;
+                }
+                if ("getCode".equals(name)) {
+                    return code;
+                }
+                if ("getBody".equals(name)) {
+                    return new String(body, StandardCharsets.UTF_8);
+                }
+                if ("getStream".equals(name)) {
+                    return new ByteArrayInputStream(body);
+                }
+                if ("getHeader".equals(name)) {
+                    return headers.get(args[0]);
+                }
+                if ("getHeaders".equals(name)) {
+                    return headers;
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+        });
+    }
+
+    private static Map<String, String> decodeForm(byte[] body) throws IOException {
+        Map<String, String> form = new HashMap<String, String>();
+        for (String parameter : new String(body, StandardCharsets.UTF_8).split("&")) {
+            int equals = parameter.indexOf('=');
+            form.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                    URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+        }
+        return form;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
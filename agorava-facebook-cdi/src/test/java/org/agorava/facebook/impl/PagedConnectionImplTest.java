@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.facebook.impl.PagedConnectionImpl.PageFetcher;
+import org.agorava.facebook.jackson.ConnectionPage;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PagedConnectionImplTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final Map<String, ConnectionPage<Integer>> pages = new HashMap<String, ConnectionPage<Integer>>();
+
+    private final List<String> fetched = new ArrayList<String>();
+
+    private final PageFetcher<Integer> fetcher = new PageFetcher<Integer>() {
+        @Override
+        public ConnectionPage<Integer> fetch(String uri) {
+            fetched.add(uri);
+            return pages.get(uri);
+        }
+    };
+
+    public PagedConnectionImplTest() {
+        pages.put("p1", new ConnectionPage<Integer>(Arrays.asList(1, 2), "p2"));
+        pages.put("p2", new ConnectionPage<Integer>(new ArrayList<Integer>(), "p3"));
+        pages.put("p3", new ConnectionPage<Integer>(Arrays.asList(3), null));
+    }
+
+    @Test
+    public void followsTheNextLinks() {
+        for (int prefetchPages = 0; prefetchPages <= 2; prefetchPages++) {
+            fetched.clear();
+            PagedConnectionImpl<Integer> connection = connection(prefetchPages);
+
+            assertEquals(Arrays.asList(1, 2, 3), connection.stream().collect(Collectors.toList()));
+            assertEquals(Arrays.asList("p1", "p2", "p3"), fetched);
+        }
+    }
+
+    @Test
+    public void fetchesPagesOnDemandWithoutPrefetching() {
+        Iterator<Integer> walk = connection(0).iterator();
+
+        assertTrue(fetched.isEmpty());
+        assertEquals(Integer.valueOf(1), walk.next());
+        assertEquals(Integer.valueOf(2), walk.next());
+        assertEquals(Arrays.asList("p1"), fetched);
+    }
+
+    @Test
+    public void prefetchesUpToTheGivenNumberOfPages() {
+        Iterator<Integer> walk = connection(1).iterator();
+
+        assertEquals(Arrays.asList("p1"), fetched);
+        assertEquals(Integer.valueOf(1), walk.next());
+        assertEquals(Arrays.asList("p1", "p2"), fetched);
+    }
+
+    @Test
+    public void closeStopsTheStartedWalks() {
+        PagedConnectionImpl<Integer> connection = connection(1);
+        Iterator<Integer> walk = connection.iterator();
+        walk.next();
+
+        connection.close();
+
+        assertEquals(Integer.valueOf(2), walk.next());
+        assertFalse(walk.hasNext());
+        assertEquals(Arrays.asList("p1", "p2"), fetched);
+    }
+
+    @Test
+    public void closingAStreamStopsItsWalk() {
+        PagedConnectionImpl<Integer> connection = connection(0);
+        Stream<Integer> stream = connection.stream();
+        Iterator<Integer> walk = stream.iterator();
+        walk.next();
+
+        stream.close();
+
+        assertEquals(Integer.valueOf(2), walk.next());
+        assertFalse(walk.hasNext());
+        assertEquals(Arrays.asList("p1"), fetched);
+    }
+
+    @Test
+    public void releasesAbandonedWalks() throws InterruptedException {
+        PagedConnectionImpl<Integer> connection = connection(1);
+        Iterator<Integer> walk = connection.iterator();
+        walk.next();
+        WeakReference<Iterator<Integer>> abandoned = new WeakReference<Iterator<Integer>>(walk);
+        walk = null;
+
+        for (int i = 0; i < 50 && abandoned.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(abandoned.get());
+    }
+
+    private PagedConnectionImpl<Integer> connection(int prefetchPages) {
+        return new PagedConnectionImpl<Integer>("p1", fetcher, DIRECT, prefetchPages);
+    }
+}
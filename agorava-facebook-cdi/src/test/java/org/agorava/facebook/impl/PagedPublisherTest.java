@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.facebook.PagedConnection;
+import org.agorava.facebook.impl.PagedConnectionImpl.PageFetcher;
+import org.agorava.facebook.impl.PagedPublisher.Source;
+import org.agorava.facebook.jackson.ConnectionPage;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PagedPublisherTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final Map<String, ConnectionPage<Integer>> pages = new HashMap<String, ConnectionPage<Integer>>();
+
+    private final List<String> fetched = new ArrayList<String>();
+
+    private final PageFetcher<Integer> fetcher = new PageFetcher<Integer>() {
+        @Override
+        public ConnectionPage<Integer> fetch(String uri) {
+            fetched.add(uri);
+            ConnectionPage<Integer> page = pages.get(uri);
+            if (page == null) {
+                throw new IllegalStateException("No page " + uri);
+            }
+            return page;
+        }
+    };
+
+    public PagedPublisherTest() {
+        pages.put("p1", new ConnectionPage<Integer>(Arrays.asList(1, 2), "p2"));
+        pages.put("p2", new ConnectionPage<Integer>(Arrays.asList(3), null));
+    }
+
+    @Test
+    public void completesOnceTheLastElementIsEmitted() {
+        RecordingSubscriber subscriber = subscribe(0, 3);
+
+        assertEquals(Arrays.asList(1, 2, 3), subscriber.elements);
+        assertTrue(subscriber.completed);
+        assertEquals(Arrays.asList("p1", "p2"), fetched);
+    }
+
+    @Test
+    public void completesOnceTheLastPrefetchedElementIsEmitted() {
+        RecordingSubscriber subscriber = subscribe(1, 3);
+
+        assertEquals(Arrays.asList(1, 2, 3), subscriber.elements);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void doesNotFetchAPageBeyondTheDemand() {
+        RecordingSubscriber subscriber = subscribe(0, 2);
+
+        assertEquals(Arrays.asList(1, 2), subscriber.elements);
+        assertFalse(subscriber.completed);
+        assertEquals(Arrays.asList("p1"), fetched);
+
+        subscriber.subscription.request(1);
+
+        assertEquals(Arrays.asList(1, 2, 3), subscriber.elements);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void completesAnEmptyConnection() {
+        pages.put("p1", new ConnectionPage<Integer>(new ArrayList<Integer>(), null));
+
+        RecordingSubscriber subscriber = subscribe(0, 1);
+
+        assertTrue(subscriber.elements.isEmpty());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void signalsAPrefetchFailureOnceTheDemandIsMet() {
+        pages.remove("p2");
+
+        RecordingSubscriber subscriber = subscribe(1, 2);
+
+        assertEquals(Arrays.asList(1, 2), subscriber.elements);
+        assertFalse(subscriber.completed);
+        assertTrue(subscriber.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void stopsOnCancel() {
+        RecordingSubscriber subscriber = subscribe(0, 1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(2);
+
+        assertEquals(Arrays.asList(1), subscriber.elements);
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    private RecordingSubscriber subscribe(final int prefetchPages, long initialDemand) {
+        PagedPublisher<Integer> publisher = new PagedPublisher<Integer>(new Source<Integer>() {
+            @Override
+            public PagedConnection<Integer> open() {
+                return new PagedConnectionImpl<Integer>("p1", fetcher, DIRECT, prefetchPages);
+            }
+        }, DIRECT);
+        RecordingSubscriber subscriber = new RecordingSubscriber(initialDemand);
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static class RecordingSubscriber implements Subscriber<Integer> {
+
+        private final long initialDemand;
+
+        private final List<Integer> elements = new ArrayList<Integer>();
+
+        private Subscription subscription;
+
+        private boolean completed;
+
+        private Throwable error;
+
+        RecordingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(Integer element) {
+            elements.add(element);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
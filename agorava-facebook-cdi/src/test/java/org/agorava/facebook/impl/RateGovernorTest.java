@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.agorava.api.rest.Response;
+import org.agorava.facebook.cdi.RateLimitPolicy;
+import org.agorava.facebook.model.RateLimitExceededException;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RateGovernorTest {
+
+    @Test
+    public void batchLargerThanTheTokenBudgetGoesIntoDebt() {
+        RateGovernor governor = governor(new RateLimitPolicy(50, 2, 5, TimeUnit.SECONDS));
+
+        governor.acquire("token", 50);
+
+        assertEquals(-48, governor.getTokenBudget("token").getAvailableCalls(), 0.1);
+        assertEquals(0, governor.getAppBudget().getAvailableCalls(), 0.1);
+        try {
+            governor.acquire("token", 1);
+            throw new AssertionError("The debt of the batch should take longer than the maximum wait to pay back");
+        } catch (RateLimitExceededException e) {
+            assertTrue(e.getRetryAfter(TimeUnit.SECONDS) > 5);
+        }
+        assertEquals(1, governor.getRejectedCalls());
+    }
+
+    @Test
+    public void keepsSeparateBudgetsPerAccessToken() {
+        RateGovernor governor = governor(new RateLimitPolicy(50, 2, 0, TimeUnit.SECONDS));
+
+        governor.acquire("a", 2);
+        governor.acquire("b", 2);
+
+        assertEquals(0, governor.getTokenBudget("a").getAvailableCalls(), 0.1);
+        assertEquals(0, governor.getTokenBudget("b").getAvailableCalls(), 0.1);
+        assertNull(governor.getTokenBudget("c"));
+    }
+
+    @Test
+    public void stopsCallsOnceTheReportedUsageReachesTheCeiling() {
+        RateGovernor governor = governor(RateLimitPolicy.unlimited());
+        governor.acquire("token", 1);
+
+        governor.record("token", response(RateGovernor.APP_USAGE_HEADER,
+                "{\"call_count\":100,\"total_cputime\":12,\"total_time\":8}"));
+
+        assertEquals(100, governor.getAppBudget().getUsage());
+        try {
+            governor.acquire("token", 1);
+            throw new AssertionError("Calls should stop at a usage of 100%");
+        } catch (RateLimitExceededException expected) {
+            assertEquals(1, governor.getRejectedCalls());
+        }
+    }
+
+    @Test
+    public void waitsForTheTimeFacebookEstimatesToRegainAccess() {
+        RateGovernor governor = governor(RateLimitPolicy.unlimited());
+
+        governor.record("token", response(RateGovernor.BUSINESS_USE_CASE_USAGE_HEADER,
+                "{\"1234\":[{\"type\":\"pages\",\"call_count\":12,\"total_cputime\":3,\"total_time\":4,"
+                        + "\"estimated_time_to_regain_access\":3}]}"));
+
+        RateBudget budget = governor.getTokenBudget("token");
+        assertEquals(12, budget.getUsage());
+        assertTrue(budget.getBlockedFor(TimeUnit.SECONDS) > TimeUnit.MINUTES.toSeconds(2));
+        assertEquals(0, governor.getAppBudget().getBlockedFor(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void ignoresMalformedUsageHeaders() {
+        RateGovernor governor = governor(RateLimitPolicy.unlimited());
+
+        governor.record("token", response(RateGovernor.APP_USAGE_HEADER, "{call_count"));
+
+        assertEquals(-1, governor.getAppBudget().getUsage());
+        governor.acquire("token", 1);
+    }
+
+    private static RateGovernor governor(RateLimitPolicy policy) {
+        RateGovernor governor = new RateGovernor();
+        TestBeans.inject(governor, "policies", TestBeans.instance(policy));
+        TestBeans.inject(governor, "objectMapper", new ObjectMapper());
+        governor.init();
+        return governor;
+    }
+
+    private static Response response(String header, String value) {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put(header, value);
+        return TestBeans.proxy(Response.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getHeader".equals(method.getName())) {
+                    return headers.get(args[0]);
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+        });
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.agorava.api.exception.AgoravaException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    public void coalescesConcurrentReadsOfTheSameKey() throws Exception {
+        final Object result = new Object();
+        List<Caller> callers = new ArrayList<Caller>();
+        callers.add(new Caller("me", blockingRead(result)));
+        callers.get(0).start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            Caller follower = new Caller("me", blockingRead(new Object()));
+            callers.add(follower);
+            follower.start();
+            awaitWaiting(follower);
+        }
+
+        release.countDown();
+
+        for (Caller caller : callers) {
+            caller.join(5000);
+            assertSame(result, caller.result);
+        }
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void runsReadsOfOtherKeys() throws Exception {
+        Caller leader = new Caller("me", blockingRead("me"));
+        leader.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals("friend", singleFlight.execute("friend", countingRead("friend")));
+
+        release.countDown();
+        leader.join(5000);
+        assertEquals("me", leader.result);
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void keepsNothingOnceTheReadCompletes() {
+        assertEquals("first", singleFlight.execute("me", countingRead("first")));
+        assertEquals("second", singleFlight.execute("me", countingRead("second")));
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void sharesTheFailureOfTheRead() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("Graph API down");
+        Caller leader = new Caller("me", new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                started.countDown();
+                release.await();
+                throw failure;
+            }
+        });
+        leader.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Caller follower = new Caller("me", countingRead("unused"));
+        follower.start();
+        awaitWaiting(follower);
+
+        release.countDown();
+
+        leader.join(5000);
+        follower.join(5000);
+        assertSame(failure, leader.failure);
+        assertSame(failure, follower.failure);
+        assertEquals(0, reads.get());
+        assertEquals("retried", singleFlight.execute("me", countingRead("retried")));
+    }
+
+    @Test
+    public void wrapsACheckedFailure() {
+        final IOException failure = new IOException("Connection reset");
+        try {
+            singleFlight.execute("me", new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    throw failure;
+                }
+            });
+            throw new AssertionError("The read failed");
+        } catch (AgoravaException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void keysReadsByTokenUriAndTypes() {
+        String key = SingleFlight.key("token", "https://graph.facebook.com/me", String.class);
+
+        assertEquals(key, SingleFlight.key("token", "https://graph.facebook.com/me", String.class));
+        assertFalse(key.equals(SingleFlight.key("other", "https://graph.facebook.com/me", String.class)));
+        assertFalse(key.equals(SingleFlight.key("token", "https://graph.facebook.com/me", Object.class)));
+        assertFalse(key.equals(SingleFlight.key("token", "https://graph.facebook.com/me")));
+    }
+
+    private Callable<Object> blockingRead(final Object result) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                reads.incrementAndGet();
+                started.countDown();
+                release.await();
+                return result;
+            }
+        };
+    }
+
+    private Callable<Object> countingRead(final Object result) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() {
+                reads.incrementAndGet();
+                return result;
+            }
+        };
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue("The caller never waited", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private class Caller extends Thread {
+
+        private final String key;
+
+        private final Callable<Object> read;
+
+        private volatile Object result;
+
+        private volatile RuntimeException failure;
+
+        Caller(String key, Callable<Object> read) {
+            this.key = key;
+            this.read = read;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result = singleFlight.execute(key, read);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+}
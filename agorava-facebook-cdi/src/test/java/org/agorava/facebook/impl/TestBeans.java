@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import javax.enterprise.inject.Instance;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+/**
+ * Wires beans by hand for the tests running without a CDI container.
+ */
+public final class TestBeans {
+
+    private TestBeans() {
+    }
+
+    /**
+     * Sets the injected fields of the given name declared by the class of a bean and its superclasses.
+     */
+    public static <T> T inject(T bean, String fieldName, Object value) {
+        boolean injected = false;
+        for (Class<?> type = bean.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(bean, value);
+                injected = true;
+            } catch (NoSuchFieldException e) {
+                // declared by another class of the hierarchy
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        if (!injected) {
+            throw new IllegalArgumentException("No field " + fieldName + " in " + bean.getClass());
+        }
+        return bean;
+    }
+
+    /**
+     * @return an {@link Instance} of the given bean, unsatisfied if it is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Instance<T> instance(final T bean) {
+        return proxy(Instance.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("get".equals(method.getName())) {
+                    return bean;
+                }
+                if ("isUnsatisfied".equals(method.getName())) {
+                    return bean == null;
+                }
+                if ("isAmbiguous".equals(method.getName())) {
+                    return false;
+                }
+                if ("iterator".equals(method.getName())) {
+                    return bean == null ? Collections.emptyIterator() : Collections.singleton(bean).iterator();
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+        });
+    }
+
+    /**
+     * @return an implementation of the given interface answering its calls with the handler
+     */
+    public static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(TestBeans.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
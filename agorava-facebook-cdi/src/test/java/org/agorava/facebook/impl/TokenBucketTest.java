@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long START = 1000 * SECOND;
+
+    @Test
+    public void allowsBurstsOfOneSecondOfCalls() {
+        TokenBucket bucket = new TokenBucket(2, START);
+
+        assertEquals(0, bucket.delay(START, 2));
+        bucket.take(START, 2);
+
+        assertEquals(SECOND / 2, bucket.delay(START, 1));
+        assertEquals(0, bucket.delay(START + SECOND / 2, 1));
+    }
+
+    @Test
+    public void callsTakenAheadOfTimeDelayTheFollowingOnes() {
+        TokenBucket bucket = new TokenBucket(2, START);
+        bucket.take(START, 2);
+        bucket.take(START, 1);
+
+        assertEquals(SECOND, bucket.delay(START, 1));
+    }
+
+    @Test
+    public void requestLargerThanTheBucketWaitsForAFullBucketOnly() {
+        TokenBucket bucket = new TokenBucket(2, START);
+        bucket.take(START, 2);
+
+        assertEquals(SECOND, bucket.delay(START, 50));
+        bucket.take(START + SECOND, 50);
+
+        assertEquals(-48, bucket.snapshot(START + SECOND).getAvailableCalls(), 1e-9);
+        assertEquals(24 * SECOND + SECOND / 2, bucket.delay(START + SECOND, 1));
+    }
+
+    @Test
+    public void slowsDownPastHalfOfTheUsageCeiling() {
+        TokenBucket bucket = new TokenBucket(2, START);
+        bucket.adapt(START, 72, 0, 90);
+
+        RateBudget budget = bucket.snapshot(START);
+        assertEquals(0.8, budget.getCallsPerSecond(), 1e-9);
+        assertEquals(0.8, budget.getAvailableCalls(), 1e-9);
+        assertEquals(72, budget.getUsage());
+        bucket.take(START, 1);
+        assertEquals(3 * SECOND / 2, bucket.delay(START, 1));
+    }
+
+    @Test
+    public void stopsAtTheUsageCeilingUntilAccessIsRegained() {
+        TokenBucket bucket = new TokenBucket(Double.POSITIVE_INFINITY, START);
+        assertEquals(0, bucket.delay(START, 1000));
+
+        bucket.adapt(START, 20, TimeUnit.MINUTES.toNanos(2), 90);
+        assertEquals(TimeUnit.MINUTES.toNanos(2), bucket.delay(START, 1));
+
+        bucket.adapt(START, 100, 0, 100);
+        assertTrue(bucket.delay(START, 1) >= TimeUnit.MINUTES.toNanos(1));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.agorava.facebook.jackson.ConnectionReader.ElementReader;
+import org.agorava.facebook.model.Reference;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionReaderTest {
+
+    private static final String PAGE = "{\"summary\":{\"total_count\":3,\"order\":[\"a\",\"b\"]},"
+            + "\"data\":[{\"id\":\"1\",\"name\":\"Craig\",\"extra\":{\"nested\":[1,{\"x\":2}]}},{\"id\":\"2\"}],"
+            + "\"paging\":{\"cursors\":{\"before\":\"MQ\",\"after\":\"Mg\"},"
+            + "\"next\":\"https://graph.facebook.com/me/friends?after=Mg\"}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new FacebookModule());
+
+    private final ObjectReader referenceReader = objectMapper.readerFor(Reference.class);
+
+    @Test
+    public void readsTheDataOfAConnection() throws IOException {
+        List<Reference> references = ConnectionReader.readDataList(parser(PAGE), referenceReader);
+
+        assertEquals(2, references.size());
+        assertEquals("1", references.get(0).getId());
+        assertEquals("Craig", references.get(0).getName());
+        assertEquals("2", references.get(1).getId());
+    }
+
+    @Test
+    public void readsAConnectionWithoutDataAsAnEmptyList() throws IOException {
+        assertTrue(ConnectionReader.readDataList(parser("{\"paging\":{}}"), referenceReader).isEmpty());
+    }
+
+    @Test
+    public void readsAPageWithItsNextLink() throws IOException {
+        ConnectionPage<Reference> page = ConnectionReader.readPage(parser(PAGE), referenceReader);
+
+        assertEquals(2, page.getData().size());
+        assertEquals("https://graph.facebook.com/me/friends?after=Mg", page.getNext());
+        assertTrue(page.hasNext());
+    }
+
+    @Test
+    public void readsTheLastPage() throws IOException {
+        ConnectionPage<Reference> page = ConnectionReader.readPage(
+                parser("{\"data\":[{\"id\":\"1\"}],\"paging\":{\"previous\":\"https://graph.facebook.com/p\"}}"),
+                referenceReader);
+
+        assertEquals(1, page.getData().size());
+        assertNull(page.getNext());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    public void leavesEachElementToItsReader() throws IOException {
+        final List<JsonToken> firstTokens = new ArrayList<JsonToken>();
+        List<String> ids = ConnectionReader.readDataList(parser(PAGE), new ElementReader<String>() {
+            @Override
+            public String read(JsonParser jp) throws IOException {
+                firstTokens.add(jp.getCurrentToken());
+                return jp.<JsonNode>readValueAsTree().get("id").asText();
+            }
+        });
+
+        assertEquals(Arrays.asList("1", "2"), ids);
+        assertEquals(Arrays.asList(JsonToken.START_OBJECT, JsonToken.START_OBJECT), firstTokens);
+    }
+
+    @Test
+    public void readsTheObjectsOfAMultiObjectResponseInOrder() throws IOException {
+        Map<String, Reference> objects = new LinkedHashMap<String, Reference>();
+
+        ConnectionReader.readObjectMap(parser("{\"2\":{\"id\":\"2\",\"name\":\"Roy\"},\"1\":{\"id\":\"1\"}}"),
+                referenceReader, objects);
+
+        assertEquals(Arrays.asList("2", "1"), new ArrayList<String>(objects.keySet()));
+        assertEquals("Roy", objects.get("2").getName());
+    }
+
+    @Test
+    public void rejectsAResponseThatIsNotAnObject() throws IOException {
+        try {
+            ConnectionReader.readPage(parser("[{\"id\":\"1\"}]"), referenceReader);
+            throw new AssertionError("An array isn't a connection");
+        } catch (JsonMappingException e) {
+            assertTrue(e.getMessage().startsWith("Expected a Graph API connection object but got START_ARRAY"));
+            assertEquals(1, e.getLocation().getColumnNr());
+        }
+    }
+
+    private JsonParser parser(String json) throws IOException {
+        return objectMapper.getFactory().createParser(json);
+    }
+}
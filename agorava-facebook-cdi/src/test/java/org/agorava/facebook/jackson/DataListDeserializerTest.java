@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.jackson;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.agorava.facebook.model.Post;
+import org.agorava.facebook.model.StatusPost;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DataListDeserializerTest {
+
+    private static final String POST = "{\"postType\":\"status\",\"id\":\"1_2\","
+            + "\"to\":{\"data\":[{\"id\":\"3\",\"name\":\"Roy\"}]},"
+            + "\"likes\":{\"data\":[{\"id\":\"4\",\"name\":\"Keith\"},{\"id\":\"5\"}],\"count\":7,"
+            + "\"paging\":{\"next\":\"https://graph.facebook.com/1_2/likes?after=NQ\"}},"
+            + "\"comments\":{\"count\":2,\"data\":[{\"id\":\"1_2_6\",\"message\":\"Nice\",\"from\":{\"id\":\"4\"}}]}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new FacebookModule());
+
+    private final ObjectReader eager = objectMapper.readerFor(Post.class);
+
+    private final ObjectReader lazy = eager.withAttribute(FacebookModule.LAZY_NESTED_LISTS, Boolean.TRUE);
+
+    @Test
+    public void bindsTheDataAndCountOfNestedLists() throws IOException {
+        for (ObjectReader reader : new ObjectReader[]{eager, lazy}) {
+            Post post = reader.readValue(POST);
+
+            assertTrue(post instanceof StatusPost);
+            assertEquals(1, post.getTo().size());
+            assertEquals("Roy", post.getTo().get(0).getName());
+            assertEquals(2, post.getLikes().size());
+            assertEquals("Keith", post.getLikes().get(0).getName());
+            assertEquals(7, post.getLikeCount());
+            assertEquals(1, post.getComments().size());
+            assertEquals("Nice", post.getComments().get(0).getMessage());
+            assertEquals("4", post.getComments().get(0).getFrom().getId());
+            assertEquals(1, post.getCommentCount());
+        }
+    }
+
+    @Test
+    public void readsAnArrayAsTheDataOfAList() throws IOException {
+        for (ObjectReader reader : new ObjectReader[]{eager, lazy}) {
+            Post post = reader.readValue("{\"postType\":\"post\",\"id\":\"1\",\"likes\":[{\"id\":\"4\"}]}");
+
+            assertEquals(1, post.getLikes().size());
+            assertEquals(0, post.getLikeCount());
+        }
+    }
+
+    @Test
+    public void bindsAListWithoutDataAsEmpty() throws IOException {
+        for (ObjectReader reader : new ObjectReader[]{eager, lazy}) {
+            Post post = reader.readValue("{\"postType\":\"post\",\"id\":\"1\",\"likes\":{\"count\":4}}");
+
+            assertTrue(post.getLikes().isEmpty());
+            assertEquals(4, post.getLikeCount());
+        }
+    }
+
+    @Test
+    public void rejectsAListThatIsNeitherAnObjectNorAnArray() throws IOException {
+        try {
+            eager.readValue("{\"postType\":\"post\",\"id\":\"1\",\"likes\":\"many\"}");
+            throw new AssertionError("A string isn't a list");
+        } catch (JsonMappingException e) {
+            assertTrue(e.getMessage().startsWith("Expected a Graph API list of Reference but got VALUE_STRING"));
+        }
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.agorava.api.exception.AgoravaException;
+import org.agorava.facebook.cdi.RawPostSink;
+import org.agorava.facebook.model.Post;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded store of the JSON of posts, keyed by post ID, needing no database.
+ * <p>
+ * Posts are appended to a log of memory-mapped segment files in a directory, and an index of the latest record of each
+ * post, by ID and by creation time, is kept in memory and rebuilt from the log when the store is opened. Storing a
+ * post again supersedes its previous record; {@link #compact()} rewrites the log without the superseded records.
+ * <p>
+ * The store is a {@link RawPostSink}, so that producing it as the {@code @Facebook RawPostSink} stores every post read
+ * through {@link org.agorava.facebook.FeedService}:
+ * <pre>
+ * &#064;Produces &#064;Facebook &#064;ApplicationScoped
+ * RawPostSink postStore(ObjectMapper objectMapper) throws IOException {
+ *     return new PostStore(Paths.get("/var/lib/crawler/posts"), objectMapper);
+ * }
+ *
+ * void closePostStore(&#064;Disposes &#064;Facebook RawPostSink postStore) throws IOException {
+ *     ((PostStore) postStore).close();
+ * }
+ * </pre>
+ * Records are written to the mapped files without forcing them to the disk, which the operating system does on its
+ * own schedule; {@link #flush()} forces them.
+ */
+public class PostStore implements RawPostSink, Closeable {
+
+    /**
+     * The size of the segment files of a store created without one, 64 MB.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+
+    private static final Comparator<Location> BY_CREATED_TIME = new Comparator<Location>() {
+        @Override
+        public int compare(Location a, Location b) {
+            int byTime = a.createdTime < b.createdTime ? -1 : a.createdTime > b.createdTime ? 1 : 0;
+            return byTime != 0 ? byTime : a.postId.compareTo(b.postId);
+        }
+    };
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectReader postReader;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    private final Map<String, Location> byId = new HashMap<String, Location>();
+
+    private final NavigableSet<Location> byCreatedTime = new TreeSet<Location>(BY_CREATED_TIME);
+
+    private boolean closed;
+
+    /**
+     * Opens the store of the given directory with segments of the default size, creating it if needed.
+     *
+     * @param objectMapper the mapper binding the stored posts, which must have the Facebook module registered
+     */
+    public PostStore(Path directory, ObjectMapper objectMapper) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, objectMapper);
+    }
+
+    /**
+     * Opens the store of the given directory, creating it if needed.
+     *
+     * @param segmentSize  the size of the segment files created, which bounds the size of a post
+     * @param objectMapper the mapper binding the stored posts, which must have the Facebook module registered
+     */
+    public PostStore(Path directory, int segmentSize, ObjectMapper objectMapper) throws IOException {
+        if (segmentSize <= Segment.HEADER_SIZE + Segment.RECORD_OVERHEAD) {
+            throw new IllegalArgumentException("segmentSize is too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.objectMapper = objectMapper;
+        this.postReader = objectMapper.readerFor(Post.class);
+        Files.createDirectories(directory);
+        for (Path file : segmentFiles()) {
+            segments.add(Segment.open(sequenceOf(file), file, new Segment.RecordVisitor() {
+                @Override
+                public void visit(Segment segment, int offset, long createdTime, String postId) {
+                    index(new Location(postId, createdTime, segment, offset));
+                }
+            }));
+        }
+    }
+
+    /**
+     * Stores the JSON of the given post, superseding the one stored before, if any.
+     */
+    @Override
+    public void accept(Post post, JsonNode json) {
+        try {
+            put(post.getId(), post.getCreatedTime(), objectMapper.writeValueAsBytes(json));
+        } catch (IOException e) {
+            throw new AgoravaException("Error storing post " + post.getId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stores the JSON of a post, superseding the one stored before, if any.
+     *
+     * @param postId      the ID of the post
+     * @param createdTime when the post was created, or null if unknown
+     * @param json        the JSON of the post, carrying its type in a "postType" member
+     * @throws IllegalArgumentException if the post can't fit in a segment
+     */
+    public void put(String postId, Date createdTime, byte[] json) throws IOException {
+        byte[] id = postId.getBytes(Segment.UTF_8);
+        if (Segment.recordSize(id, json, segmentSize) < 0) {
+            throw new IllegalArgumentException("Post " + postId + " is too large for segments of " + segmentSize
+                    + " bytes");
+        }
+        long time = createdTime != null ? createdTime.getTime() : 0;
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            int offset = segment != null ? segment.append(time, id, json) : -1;
+            if (offset < 0) {
+                segment = newSegment();
+                offset = segment.append(time, id, json);
+            }
+            index(new Location(postId, time, segment, offset));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the stored JSON of the post, or null if it isn't stored
+     */
+    public byte[] getJson(String postId) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            Location location = byId.get(postId);
+            return location != null ? location.segment.readJson(location.offset) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the stored post, or null if it isn't stored
+     */
+    public Post getPost(String postId) throws IOException {
+        byte[] json = getJson(postId);
+        return json != null ? postReader.<Post>readValue(json) : null;
+    }
+
+    /**
+     * @param from the earliest creation time, inclusive
+     * @param to   the latest creation time, exclusive
+     * @return the IDs of the stored posts created within the range, oldest first
+     */
+    public List<String> getPostIdsCreatedBetween(Date from, Date to) {
+        List<String> postIds = new ArrayList<String>();
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            for (Location location : range(from, to)) {
+                postIds.add(location.postId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return postIds;
+    }
+
+    /**
+     * @param from the earliest creation time, inclusive
+     * @param to   the latest creation time, exclusive
+     * @return the stored posts created within the range, oldest first
+     */
+    public List<Post> getPostsCreatedBetween(Date from, Date to) throws IOException {
+        List<byte[]> jsons = new ArrayList<byte[]>();
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            for (Location location : range(from, to)) {
+                jsons.add(location.segment.readJson(location.offset));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Post> posts = new ArrayList<Post>(jsons.size());
+        for (byte[] json : jsons) {
+            posts.add(postReader.<Post>readValue(json));
+        }
+        return posts;
+    }
+
+    /**
+     * @return the number of posts stored
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the bytes of the log taken by superseded records, which {@link #compact()} reclaims
+     */
+    public long getReclaimableBytes() {
+        lock.readLock().lock();
+        try {
+            long reclaimable = 0;
+            for (Segment segment : segments) {
+                reclaimable += segment.getDeadBytes();
+            }
+            return reclaimable;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log with the latest record of each post only, in new segments, and deletes the previous segments.
+     * Writes and reads wait for the compaction to finish.
+     * <p>
+     * The mappings of the previous segments are released before their files are deleted. On a JDK that doesn't allow
+     * it, Windows refuses to delete these files: they are then left in place, and since all their records are
+     * superseded by the new segments, the next compaction after reopening the store deletes them.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            List<Segment> previous = new ArrayList<Segment>(segments);
+            segments.clear();
+            Segment target = newSegment();
+            // Copied in creation time order, so that range scans read the segments sequentially
+            for (Location location : byCreatedTime) {
+                int offset = location.segment.copyTo(location.offset, target);
+                if (offset < 0) {
+                    target.flush();
+                    target = newSegment();
+                    offset = location.segment.copyTo(location.offset, target);
+                }
+                location.segment = target;
+                location.offset = offset;
+            }
+            target.flush();
+            for (Segment segment : previous) {
+                boolean unmapped = segment.unmap();
+                try {
+                    Files.delete(segment.getFile());
+                } catch (FileSystemException e) {
+                    if (unmapped) {
+                        throw e;
+                    }
+                    // still mapped, which Windows doesn't allow to delete
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the records written to the disk.
+     */
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            for (Segment segment : segments) {
+                segment.flush();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes the store and closes it.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                for (Segment segment : segments) {
+                    segment.close();
+                }
+                segments.clear();
+                byId.clear();
+                byCreatedTime.clear();
+                closed = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Location location) {
+        Location previous = byId.put(location.postId, location);
+        if (previous != null) {
+            byCreatedTime.remove(previous);
+            previous.segment.markDead(previous.offset);
+        }
+        byCreatedTime.add(location);
+    }
+
+    private NavigableSet<Location> range(Date from, Date to) {
+        return byCreatedTime.subSet(new Location("", from.getTime(), null, 0), true,
+                new Location("", to.getTime(), null, 0), false);
+    }
+
+    private Segment newSegment() throws IOException {
+        long sequence = segments.isEmpty() ? nextSequence() : segments.get(segments.size() - 1).getSequence() + 1;
+        Segment segment = Segment.create(sequence, directory.resolve(String.format("%016d%s", sequence,
+                SEGMENT_SUFFIX)), segmentSize);
+        segments.add(segment);
+        return segment;
+    }
+
+    private long nextSequence() throws IOException {
+        long sequence = 0;
+        for (Path file : segmentFiles()) {
+            sequence = Math.max(sequence, sequenceOf(file) + 1);
+        }
+        return sequence;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX);
+        try {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        } finally {
+            stream.close();
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The post store of " + directory + " is closed");
+        }
+    }
+
+    /**
+     * Where the latest record of a post is.
+     */
+    private static final class Location {
+
+        final String postId;
+
+        final long createdTime;
+
+        Segment segment;
+
+        int offset;
+
+        Location(String postId, long createdTime, Segment segment, int offset) {
+            this.postId = postId;
+            this.createdTime = createdTime;
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+}
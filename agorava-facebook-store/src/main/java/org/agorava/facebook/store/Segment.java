@@ -0,0 +1,269 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.agorava.facebook.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * A file of the log, mapped in memory at its full size when created.
+ * <p>
+ * The file starts with a magic number and holds records one after the other until the first zero length:
+ * <pre>
+ * int length | int crc | long createdTime | short idLength | id | json
+ * </pre>
+ * where length counts the bytes after the CRC, which covers them. The length of a record is written after the rest of
+ * it, so that a record interrupted by a crash reads as the end of the log.
+ * <p>
+ * Closing a segment releases its mapping, which the JDK otherwise only does when the buffer is garbage collected.
+ * The segment must not be used afterwards.
+ */
+final class Segment implements Closeable {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final int HEADER_SIZE = 8;
+
+    static final int RECORD_OVERHEAD = 4 + 4 + 8 + 2;
+
+    private static final int MAGIC = 0x41465053;
+
+    private static final int VERSION = 1;
+
+    private final long sequence;
+
+    private final Path file;
+
+    private final MappedByteBuffer buffer;
+
+    private int position = HEADER_SIZE;
+
+    private int deadBytes;
+
+    private Segment(long sequence, Path file, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates an empty segment file of the given size.
+     */
+    static Segment create(long sequence, Path file, int size) throws IOException {
+        Segment segment = new Segment(sequence, file, map(file, size));
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(4, VERSION);
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment file, leaving the write position after its last complete record.
+     */
+    static Segment open(long sequence, Path file, RecordVisitor visitor) throws IOException {
+        Segment segment = new Segment(sequence, file, map(file, (int) Files.size(file)));
+        if (segment.buffer.getInt(0) != MAGIC || segment.buffer.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a post store segment");
+        }
+        segment.recover(visitor);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            // the mapping outlives the channel
+            raf.close();
+        }
+    }
+
+    private void recover(RecordVisitor visitor) {
+        int offset = HEADER_SIZE;
+        while (offset + RECORD_OVERHEAD <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + 8 + length > buffer.capacity() || buffer.getInt(offset + 4) != crc(offset, length)) {
+                break;
+            }
+            visitor.visit(this, offset, buffer.getLong(offset + 8), readId(offset));
+            offset += 8 + length;
+        }
+        position = offset;
+    }
+
+    /**
+     * @return the size of the record of the given post, or -1 if it can't fit in a segment of the given size
+     */
+    static int recordSize(byte[] id, byte[] json, int segmentSize) {
+        long size = (long) RECORD_OVERHEAD + id.length + json.length;
+        return id.length <= Short.MAX_VALUE && size <= segmentSize - HEADER_SIZE ? (int) size : -1;
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @return the offset of the record, or -1 if the segment is too full to hold it
+     */
+    int append(long createdTime, byte[] id, byte[] json) {
+        int length = RECORD_OVERHEAD - 8 + id.length + json.length;
+        int offset = position;
+        if (offset + 8 + length > buffer.capacity()) {
+            return -1;
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset + 8);
+        record.putLong(createdTime);
+        record.putShort((short) id.length);
+        record.put(id);
+        record.put(json);
+        buffer.putInt(offset + 4, crc(offset, length));
+        buffer.putInt(offset, length);
+        position = offset + 8 + length;
+        return offset;
+    }
+
+    /**
+     * Copies the record at the given offset as it is to another segment.
+     *
+     * @return the offset of the copy, or -1 if the other segment is too full to hold it
+     */
+    int copyTo(int offset, Segment target) {
+        int size = 8 + buffer.getInt(offset);
+        if (target.position + size > target.buffer.capacity()) {
+            return -1;
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.limit(offset + size);
+        record.position(offset + 4);
+        ByteBuffer copy = target.buffer.duplicate();
+        copy.position(target.position + 4);
+        copy.put(record);
+        int targetOffset = target.position;
+        target.buffer.putInt(targetOffset, size - 8);
+        target.position += size;
+        return targetOffset;
+    }
+
+    String readId(int offset) {
+        byte[] id = new byte[buffer.getShort(offset + 16)];
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset + RECORD_OVERHEAD);
+        record.get(id);
+        return new String(id, UTF_8);
+    }
+
+    byte[] readJson(int offset) {
+        int idLength = buffer.getShort(offset + 16);
+        byte[] json = new byte[buffer.getInt(offset) - (RECORD_OVERHEAD - 8) - idLength];
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset + RECORD_OVERHEAD + idLength);
+        record.get(json);
+        return json;
+    }
+
+    int recordSize(int offset) {
+        return 8 + buffer.getInt(offset);
+    }
+
+    void markDead(int offset) {
+        deadBytes += recordSize(offset);
+    }
+
+    int getDeadBytes() {
+        return deadBytes;
+    }
+
+    int getUsedBytes() {
+        return position - HEADER_SIZE;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    void flush() {
+        buffer.force();
+    }
+
+    private int crc(int offset, int length) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(offset + 8 + length);
+        payload.position(offset + 8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Releases the mapping of the file without forcing it to the disk first, for a segment about to be deleted.
+     *
+     * @return false if the JDK doesn't let the mapping be released, which then lasts until the buffer is garbage
+     * collected
+     */
+    boolean unmap() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                // Java 9 and later
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        unmap();
+    }
+
+    /**
+     * Receives the records found when opening a segment.
+     */
+    interface RecordVisitor {
+
+        void visit(Segment segment, int offset, long createdTime, String postId);
+    }
+}
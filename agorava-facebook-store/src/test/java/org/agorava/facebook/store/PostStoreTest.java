@@ -0,0 +1,210 @@
+/*
+ * Copyright 2020 Agorava
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.agorava.facebook.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.agorava.facebook.jackson.FacebookModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PostStoreTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new FacebookModule());
+
+    private Path directory;
+
+    private PostStore store;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("post-store");
+        store = open();
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        store.close();
+        for (Path file : segmentFiles()) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void ignoresPartiallyWrittenLastRecord() throws IOException {
+        store.put("a", new Date(1000), json("a"));
+        store.put("b", new Date(2000), json("b"));
+        store.close();
+        // a crash after the length of the next record reached the disk, but before the rest of it
+        ByteBuffer partial = ByteBuffer.allocate(12);
+        partial.putInt(Segment.RECORD_OVERHEAD - 8 + 1 + json("c").length).putInt(0).putInt(42).flip();
+        write(onlySegmentFile(), Segment.HEADER_SIZE + recordSize("a") + recordSize("b"), partial);
+
+        store = open();
+        assertEquals(2, store.size());
+        assertArrayEquals(json("b"), store.getJson("b"));
+        assertNull(store.getJson("c"));
+
+        store.put("c", new Date(3000), json("c"));
+        store.close();
+        store = open();
+        assertEquals(Arrays.asList("a", "b", "c"), store.getPostIdsCreatedBetween(new Date(0), new Date(4000)));
+        assertArrayEquals(json("c"), store.getJson("c"));
+    }
+
+    @Test
+    public void ignoresTruncatedLastRecord() throws IOException {
+        store.put("a", new Date(1000), json("a"));
+        store.put("b", new Date(2000), json("b"));
+        store.close();
+        Path file = onlySegmentFile();
+        RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+        try {
+            raf.getChannel().truncate(Segment.HEADER_SIZE + recordSize("a") + recordSize("b") - 1);
+        } finally {
+            raf.close();
+        }
+
+        store = open();
+        assertEquals(1, store.size());
+        assertArrayEquals(json("a"), store.getJson("a"));
+        assertNull(store.getJson("b"));
+
+        store.put("b", new Date(2000), json("b"));
+        assertArrayEquals(json("b"), store.getJson("b"));
+    }
+
+    @Test
+    public void reopensAfterCompaction() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            store.put("post" + i, new Date(i * 1000L), json("v1-" + i));
+        }
+        for (int i = 0; i < 20; i += 2) {
+            store.put("post" + i, new Date(i * 1000L), json("v2-" + i));
+        }
+        List<Path> before = segmentFiles();
+        assertTrue(store.getReclaimableBytes() > 0);
+
+        store.compact();
+        assertEquals(0, store.getReclaimableBytes());
+        List<Path> after = segmentFiles();
+        assertTrue(after.size() < before.size());
+        assertTrue(Collections.disjoint(before, after));
+        store.close();
+
+        store = open();
+        assertEquals(20, store.size());
+        assertEquals(0, store.getReclaimableBytes());
+        for (int i = 0; i < 20; i++) {
+            assertArrayEquals(json((i % 2 == 0 ? "v2-" : "v1-") + i), store.getJson("post" + i));
+        }
+        store.put("post20", new Date(20000), json("v1-20"));
+        store.close();
+        store = open();
+        assertEquals(21, store.size());
+        assertArrayEquals(json("v1-20"), store.getJson("post20"));
+    }
+
+    @Test
+    public void scansRangesOfCreationTime() throws IOException {
+        store.put("c", new Date(3000), json("c"));
+        store.put("a", new Date(1000), json("a"));
+        store.put("b", new Date(2000), json("b"));
+        store.put("b2", new Date(2000), json("b2"));
+        store.put("unknown", null, json("unknown"));
+
+        assertEquals(Arrays.asList("a", "b", "b2"), store.getPostIdsCreatedBetween(new Date(1000), new Date(3000)));
+        assertEquals(Arrays.asList("b", "b2", "c"), store.getPostIdsCreatedBetween(new Date(1500), new Date(3001)));
+        assertEquals(Collections.<String>emptyList(), store.getPostIdsCreatedBetween(new Date(2001), new Date(3000)));
+        assertEquals(Collections.singletonList("unknown"), store.getPostIdsCreatedBetween(new Date(0), new Date(1)));
+
+        // storing a post again moves it to its new creation time
+        store.put("a", new Date(4000), json("a"));
+        assertEquals(Arrays.asList("b", "b2", "c", "a"), store.getPostIdsCreatedBetween(new Date(1000),
+                new Date(5000)));
+
+        store.compact();
+        store.close();
+        store = open();
+        assertEquals(Arrays.asList("b", "b2", "c", "a"), store.getPostIdsCreatedBetween(new Date(1000),
+                new Date(5000)));
+    }
+
+    private PostStore open() throws IOException {
+        return new PostStore(directory, SEGMENT_SIZE, objectMapper);
+    }
+
+    private static byte[] json(String message) {
+        return ("{\"message\":\"" + message + "\"}").getBytes(Segment.UTF_8);
+    }
+
+    private static int recordSize(String postId) {
+        return Segment.recordSize(postId.getBytes(Segment.UTF_8), json(postId), SEGMENT_SIZE);
+    }
+
+    private static void write(Path file, int position, ByteBuffer bytes) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            channel.write(bytes, position);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private Path onlySegmentFile() throws IOException {
+        List<Path> files = segmentFiles();
+        assertEquals(1, files.size());
+        return files.get(0);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+        try {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        } finally {
+            stream.close();
+        }
+        Collections.sort(files);
+        return files;
+    }
+}